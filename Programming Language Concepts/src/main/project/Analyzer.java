@@ -5,6 +5,10 @@ import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
     //*** the analyzer also utilizes a visitor pattern that implements a double dispatch functionality
     //analyzer essentially validates the data types present and makes sure they work with all of the operations for different aspects of the language
@@ -16,12 +20,25 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
     public Scope scope;
     private Ast.Function function;
+    private final TypeRegistry types; //the types of this analyzer's compilation session
 
     public Analyzer(Scope parent) {
+        this(parent, new TypeRegistry());
+    }
+
+    //analyzer resolving type names through the given session's registry
+    public Analyzer(Scope parent, TypeRegistry types) {
+        this.types = types;
         scope = new Scope(parent);
         scope.defineFunction("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL);
     }
 
+    //analyzer of a single function body in visitParallel, working directly in the given scope
+    private Analyzer(TypeRegistry types, Scope scope) {
+        this.types = types;
+        this.scope = scope;
+    }
+
     //returns the current scope
     public Scope getScope() {
         return scope;
@@ -31,18 +48,131 @@ public final class Analyzer implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Source ast) {
 
+        Telemetry.AnalyzeEvent event = new Telemetry.AnalyzeEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            for(Ast.Global glob : ast.getGlobals()) {
+                visit(glob);
+            }
+
+            for(Ast.Function func : ast.getFunctions()) {
+                visit(func);
+            }
+
+            Environment.Function mainFunc = scope.lookupFunction("main", 0);
+            requireAssignable(Environment.Type.INTEGER, mainFunc.getReturnType());
+
+            failed = false;
+            return null;
+        } finally {
+            Telemetry.analyzed(event, start, ast, failed);
+        }
+    }
+
+    //same as visit(Ast.Source), but the function bodies are analyzed in parallel on the common ForkJoinPool
+    public Void visitParallel(Ast.Source ast) {
+        return visitParallel(ast, ForkJoinPool.commonPool());
+    }
+
+    //same as visit(Ast.Source), but the function bodies are analyzed in parallel on the given pool
+    //globals and function signatures are still defined in source order, each function in its own scope layer on top of the previous
+    //-function's, so a body sees exactly the functions it would sequentially (the ones before it and itself) and nothing is defined during the
+    //-parallel part, every body is analyzed with its own Analyzer in its own child scope
+    //the error thrown is the one sequential analysis would throw (the first in source order), with the errors of later functions suppressed in it
+    //afterwards the current scope is the last layer, so every function can be looked up from it
+    public Void visitParallel(Ast.Source ast, ForkJoinPool pool) {
+
+        Telemetry.AnalyzeEvent event = new Telemetry.AnalyzeEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            analyzeParallel(ast, pool);
+            failed = false;
+            return null;
+        } finally {
+            Telemetry.analyzed(event, start, ast, failed);
+        }
+    }
+
+    private void analyzeParallel(Ast.Source ast, ForkJoinPool pool) {
+
         for(Ast.Global glob : ast.getGlobals()) {
             visit(glob);
         }
 
+        Scope root = scope;
+        List<Scope> layers = new ArrayList<Scope>();
+        RuntimeException signatureError = null;
+
         for(Ast.Function func : ast.getFunctions()) {
-            visit(func);
+            Scope layer = new Scope(layers.isEmpty() ? root : layers.get(layers.size() - 1));
+            try {
+                for(Scope defined = layer.getParent(); defined != root.getParent(); defined = defined.getParent()) {
+                    if(defined.hasFunction(func.getName(), func.getParameters().size())) {
+                        throw new RuntimeException("The function " + func.getName() + "/" + func.getParameters().size() + " is already defined in this scope.");
+                    }
+                }
+                define(func, layer);
+            } catch(RuntimeException e) {
+                signatureError = e; //functions after it would never be analyzed sequentially
+                break;
+            }
+            layers.add(layer);
+        }
+
+        List<Callable<RuntimeException>> tasks = new ArrayList<Callable<RuntimeException>>();
+        for(int i = 0; i < layers.size(); i++) {
+            Ast.Function func = ast.getFunctions().get(i);
+            Scope layer = layers.get(i);
+            tasks.add(() -> {
+                try {
+                    new Analyzer(types, layer).visitBody(func);
+                    return null;
+                } catch(RuntimeException e) {
+                    return e;
+                }
+            });
+        }
+
+        RuntimeException error = null;
+        for(Future<RuntimeException> result : pool.invokeAll(tasks)) {
+            RuntimeException bodyError = join(result);
+            if(bodyError != null && error == null) {
+                error = bodyError;
+            } else if(bodyError != null) {
+                error.addSuppressed(bodyError);
+            }
+        }
+        if(error != null) {
+            if(signatureError != null) {
+                error.addSuppressed(signatureError);
+            }
+            throw error;
+        } else if(signatureError != null) {
+            throw signatureError;
         }
 
+        scope = layers.isEmpty() ? root : layers.get(layers.size() - 1);
+
         Environment.Function mainFunc = scope.lookupFunction("main", 0);
         requireAssignable(Environment.Type.INTEGER, mainFunc.getReturnType());
+    }
 
-        return null;
+    //waits for the result of a body analysis task (which catches its own errors, so anything thrown here is a bug in the analyzer)
+    private static RuntimeException join(Future<RuntimeException> result) {
+        try {
+            return result.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while analyzing functions", e);
+        } catch(ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
     }
 
     //visits the value inside of global's optional if it is there
@@ -52,9 +182,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
         if(ast.getValue().isPresent()) {
             visit(ast.getValue().get());
-            requireAssignable(Environment.getType(ast.getTypeName()), ast.getValue().get().getType());
+            requireAssignable(types.getType(ast.getTypeName()), ast.getValue().get().getType());
         }
-        scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(ast.getTypeName()), ast.getMutable(),  Environment.NIL);
+        scope.defineVariable(ast.getName(), ast.getName(), types.getType(ast.getTypeName()), ast.getMutable(),  Environment.NIL);
         ast.setVariable(scope.lookupVariable(ast.getName()));
 
         return null;
@@ -66,48 +196,58 @@ public final class Analyzer implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Function ast) {
 
+        define(ast, scope);
+        visitBody(ast);
+
+        return null;
+    }
+
+    //defines the function's signature in the given scope and sets it within the ast variable
+    private void define(Ast.Function ast, Scope target) {
+
         String name = ast.getName();
         String jvmName = name;
 
         List<Environment.Type> parameterTypes = new ArrayList<Environment.Type>();
         for(int i = 0; i < ast.getParameterTypeNames().size(); i++) {
-            parameterTypes.add(Environment.getType(ast.getParameterTypeNames().get(i)));
+            parameterTypes.add(types.getType(ast.getParameterTypeNames().get(i)));
         }
 
         Environment.Type returnType;
         if(ast.getReturnTypeName().isPresent()) {
-            returnType = Environment.getType(ast.getReturnTypeName().get());
+            returnType = types.getType(ast.getReturnTypeName().get());
         } else {
             returnType = Environment.Type.NIL;
         }
 
         java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function = args -> Environment.NIL;
 
-        scope.defineFunction(name, jvmName, parameterTypes, returnType, function);
-        ast.setFunction(scope.lookupFunction(name, ast.getParameters().size()));
+        target.defineFunction(name, jvmName, parameterTypes, returnType, function);
+        ast.setFunction(target.lookupFunction(name, ast.getParameters().size()));
+    }
 
-        scope = new Scope(scope);
+    //defines the return variable and the parameters in the function's own scope and then visits its statements
+    private void visitBody(Ast.Function ast) {
 
-        //functionality depends on if the returnTypeName is there or not (since it is optional)
-        if(ast.getReturnTypeName().isPresent()) {
-            scope.defineVariable("returnVar", "returnVar", Environment.getType(ast.getReturnTypeName().get()), true, Environment.NIL);
-        } else {
-            scope.defineVariable("returnVar", "returnVar", Environment.Type.NIL, true, Environment.NIL);
+        List<Environment.Type> parameterTypes = ast.getFunction().getParameterTypes();
 
-        }
+        scope = new Scope(scope);
+
+        //the return type is NIL when the returnTypeName isn't there (since it is optional)
+        scope.defineVariable("returnVar", "returnVar", ast.getFunction().getReturnType(), true, Environment.NIL);
 
         //Present to define all parameters as variables for this scope !!!!!!
+        List<Environment.Variable> parameterVariables = new ArrayList<Environment.Variable>();
         for(int i = 0; i < ast.getParameters().size(); i++) {
-            scope.defineVariable(ast.getParameters().get(i), ast.getParameters().get(i), parameterTypes.get(i), true, Environment.NIL);
+            parameterVariables.add(scope.defineVariable(ast.getParameters().get(i), ast.getParameters().get(i), parameterTypes.get(i), true, Environment.NIL));
         }
+        ast.setParameterVariables(parameterVariables);
 
         for(Ast.Statement state : ast.getStatements()) {
             visit(state);
         }
 
         scope = scope.getParent();
-
-        return null;
     }
 
     //visits the expression in the ast variable, and it must be of class Ast.Expression.Function or else it is invalid and should throw an error
@@ -138,7 +278,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
 
         if(ast.getTypeName().isPresent()) {
-            defaultType = Environment.getType(ast.getTypeName().get());
+            defaultType = types.getType(ast.getTypeName().get());
         }
         if(ast.getValue().isPresent()) {
             visit(ast.getValue().get());
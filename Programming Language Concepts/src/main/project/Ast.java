@@ -2,6 +2,7 @@ package plc.project;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -9,6 +10,18 @@ import java.util.Optional;
 //each different class holds the relevant information for that particular piece of functionality for the programming language
 public abstract class Ast {
 
+    //index in the source of the first token of a function or statement (set by the parser), -1 for nodes that weren't parsed from source
+    //it is only used to report where a node is (like profiles do), so it isn't part of equals
+    private int index = -1;
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
     public static final class Source extends Ast {
 
         private final List<Global> globals;
@@ -123,6 +136,7 @@ public abstract class Ast {
         private final Optional<String> returnTypeName;
         private final List<Statement> statements;
         private Environment.Function function = null;
+        private List<Environment.Variable> parameterVariables = null;
 
         public Function(String name, List<String> parameters, List<Statement> statements) {
             this(name, parameters, new ArrayList<>(), Optional.of("Any"), statements);
@@ -171,6 +185,17 @@ public abstract class Ast {
             this.function = function;
         }
 
+        //the variables the analyzer defined for the parameters, in order (a nested declaration of the same name is another variable)
+        public List<Environment.Variable> getParameterVariables() {
+            if (parameterVariables == null) {
+                throw new IllegalStateException("parameterVariables is uninitialized");
+            }
+            return parameterVariables;
+        }
+
+        public void setParameterVariables(List<Environment.Variable> parameterVariables) {
+            this.parameterVariables = parameterVariables;
+        }
 
         @Override
         public boolean equals(Object obj) {
@@ -372,6 +397,7 @@ public abstract class Ast {
 
             private final Ast.Expression condition;
             private final List<Ast.Statement.Case> cases;
+            private JumpTable jumpTable = null;
 
             public Switch(Ast.Expression condition, List<Ast.Statement.Case> cases) {
                 this.condition = condition;
@@ -384,6 +410,15 @@ public abstract class Ast {
 
             public List<Ast.Statement.Case> getCases() { return cases; }
 
+            //the jump table is runtime state used by the interpreter, so it is not part of equals/toString
+            public JumpTable getJumpTable() {
+                return jumpTable;
+            }
+
+            public void setJumpTable(JumpTable jumpTable) {
+                this.jumpTable = jumpTable;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Switch &&
@@ -399,6 +434,27 @@ public abstract class Ast {
                         '}';
             }
 
+            //the case of every constant value of a switch whose cases are all literals, so the case is found with one lookup instead of
+            //-comparing the value to every case in order (the first case of a value that appears twice wins, as it does in order)
+            //a switch with a case that isn't a literal gets LINEAR, so the cases are only checked once
+            //immutable so that a jump table shared between threads always sees a consistent entry
+            public static final class JumpTable {
+
+                public static final JumpTable LINEAR = new JumpTable(null);
+
+                private final Map<Object, Ast.Statement.Case> cases;
+
+                public JumpTable(Map<Object, Ast.Statement.Case> cases) {
+                    this.cases = cases;
+                }
+
+                //the case of a value, or null if no case has the value (and the default runs)
+                public Ast.Statement.Case lookup(Object value) {
+                    return cases.get(value);
+                }
+
+            }
+
         }
 
         public static final class Case extends Statement {
@@ -598,6 +654,7 @@ public abstract class Ast {
             private final Ast.Expression left;
             private final Ast.Expression right;
             private Environment.Type type = null;
+            private Operation operation = null;
 
             public Binary(String operator, Ast.Expression left, Ast.Expression right) {
                 this.operator = operator;
@@ -629,6 +686,15 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            //the operation is derived from the operand types by the Specializer, so it is not part of equals/toString
+            public Operation getOperation() {
+                return operation;
+            }
+
+            public void setOperation(Operation operation) {
+                this.operation = operation;
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Binary &&
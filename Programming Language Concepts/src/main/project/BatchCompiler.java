@@ -0,0 +1,228 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+//the batch compiler compiles many source files to Java, running the stages as a pipeline with a thread per stage
+//-(reading and lexing, parsing, analyzing, generating) so one file is lexed while the one before it is parsed, the one before that analyzed, and so on
+//the stages are connected by bounded queues, so a stage that is ahead of the next one blocks until it catches up instead of piling up files in memory
+//every stage's time is measured, the slowest stage is the one bounding the throughput of the whole batch
+//a compiler compiles one batch at a time, use one compiler per thread to compile several batches at once
+public final class BatchCompiler {
+
+    public enum Stage {
+        LEX, PARSE, ANALYZE, GENERATE
+    }
+
+    //a file moving through the pipeline, only ever used by one stage at a time (the queues publish it safely to the next)
+    private static final class Unit {
+
+        private final int index;
+        private final Path path;
+        private List<Token> tokens;
+        private Ast.Source ast;
+        private String generated;
+        private RuntimeException error;
+
+        private Unit(int index, Path path) {
+            this.index = index;
+            this.path = path;
+        }
+
+    }
+
+    //marks the end of the batch in a queue
+    private static final Unit END = new Unit(-1, null);
+
+    //the compiled Java (or the error) of one source file
+    public static final class Result {
+
+        private final Path source;
+        private final String generated;
+        private final RuntimeException error;
+
+        private Result(Path source, String generated, RuntimeException error) {
+            this.source = source;
+            this.generated = generated;
+            this.error = error;
+        }
+
+        public Path getSource() {
+            return source;
+        }
+
+        //the generated Java, or null if the file failed to compile
+        public String getGenerated() {
+            return generated;
+        }
+
+        //the error of the first stage that failed, or null if the file compiled
+        public RuntimeException getError() {
+            return error;
+        }
+
+    }
+
+    private final int capacity;
+    private final long[] stageNanos = new long[Stage.values().length];
+
+    //compiler whose stages can be at most capacity files ahead of the next stage
+    public BatchCompiler(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("The queue capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    //compiles every file, returning the results in the same order as the files
+    //a file that fails only fails itself, its error is in its result and the rest of the batch still compiles
+    //an error no file can be blamed for (any Error other than a stack overflow) stops every stage, and is thrown once they all stopped
+    public List<Result> compile(List<Path> sources) throws InterruptedException {
+
+        BlockingQueue<Unit> lexed = new ArrayBlockingQueue<Unit>(capacity);
+        BlockingQueue<Unit> parsed = new ArrayBlockingQueue<Unit>(capacity);
+        BlockingQueue<Unit> analyzed = new ArrayBlockingQueue<Unit>(capacity);
+        List<Result> results = new ArrayList<Result>(Collections.nCopies(sources.size(), null));
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        threads.add(stage(Stage.LEX, threads, failure, () -> {
+            for(int i = 0; i < sources.size(); i++) {
+                Unit unit = new Unit(i, sources.get(i));
+                run(Stage.LEX, unit, () -> unit.tokens = new Lexer(read(unit.path)).lex());
+                lexed.put(unit);
+            }
+            lexed.put(END);
+        }));
+        threads.add(stage(Stage.PARSE, threads, failure, () -> {
+            for(Unit unit = lexed.take(); unit != END; unit = lexed.take()) {
+                Unit parsing = unit;
+                run(Stage.PARSE, parsing, () -> parsing.ast = new Parser(parsing.tokens).parseSource());
+                parsing.tokens = null;
+                parsed.put(parsing);
+            }
+            parsed.put(END);
+        }));
+        threads.add(stage(Stage.ANALYZE, threads, failure, () -> {
+            for(Unit unit = parsed.take(); unit != END; unit = parsed.take()) {
+                Unit analyzing = unit;
+                run(Stage.ANALYZE, analyzing, () -> new Analyzer(new Scope(null)).visit(analyzing.ast));
+                analyzed.put(analyzing);
+            }
+            analyzed.put(END);
+        }));
+        threads.add(stage(Stage.GENERATE, threads, failure, () -> {
+            for(Unit unit = analyzed.take(); unit != END; unit = analyzed.take()) {
+                Unit generating = unit;
+                run(Stage.GENERATE, generating, () -> {
+                    StringWriter writer = new StringWriter();
+                    new Generator(new PrintWriter(writer)).visit(generating.ast);
+                    generating.generated = writer.toString();
+                });
+                results.set(generating.index, new Result(generating.path, generating.generated, generating.error));
+            }
+        }));
+
+        try {
+            for(Thread thread : threads) {
+                thread.start();
+            }
+            for(Thread thread : threads) {
+                thread.join();
+            }
+        } catch(InterruptedException e) {
+            for(Thread thread : threads) {
+                thread.interrupt();
+            }
+            throw e;
+        }
+
+        Throwable error = failure.get();
+        if(error instanceof Error) {
+            throw (Error) error;
+        } else if(error != null) {
+            throw new IllegalStateException("A stage of the batch failed.", error);
+        }
+
+        return results;
+    }
+
+    //the total time a stage spent on the files of every batch this compiler compiled
+    public Map<Stage, Long> getStageNanos() {
+
+        Map<Stage, Long> timings = new EnumMap<Stage, Long>(Stage.class);
+        for(Stage stage : Stage.values()) {
+            timings.put(stage, stageNanos[stage.ordinal()]);
+        }
+
+        return timings;
+    }
+
+    private interface StageLoop {
+        void run() throws InterruptedException;
+    }
+
+    //the (unstarted) thread of a stage, a stage that fails interrupts every stage of the batch, as the stages next to it would otherwise
+    //-wait forever for a file it never hands on (or for room in a queue it never takes from)
+    //compile starts the threads once all of them are in the list
+    private static Thread stage(Stage stage, List<Thread> threads, AtomicReference<Throwable> failure, StageLoop loop) {
+
+        Thread thread = new Thread(() -> {
+            try {
+                loop.run();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt(); //the batch was abandoned
+            } catch(Throwable e) {
+                failure.compareAndSet(null, e);
+                for(Thread other : threads) {
+                    other.interrupt();
+                }
+            }
+        }, "plc-" + stage.name().toLowerCase());
+        thread.setDaemon(true);
+
+        return thread;
+    }
+
+    //runs a stage on a file that hasn't failed yet, timing it and keeping its error
+    //only the stage's own thread writes its timing, and compile only reads it after joining every stage thread
+    private void run(Stage stage, Unit unit, Runnable work) {
+
+        if(unit.error != null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            work.run();
+        } catch(RuntimeException e) {
+            unit.error = e;
+        } catch(StackOverflowError e) {
+            unit.error = new RuntimeException("The program is nested too deeply to compile.", e); //the stage thread has to keep going
+        } finally {
+            stageNanos[stage.ordinal()] += System.nanoTime() - start;
+        }
+    }
+
+    private static String read(Path path) {
+        try {
+            return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+package plc.project;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//an emitter collects the code the generator prints in a char buffer and writes it to its destination in chunks, instead of making a call
+//-to the destination for every token and every four spaces of indentation
+//the destination is a Writer (written to as characters), or a byte channel or ByteBuffer (written to as UTF-8, encoded once per chunk)
+//a chunk is written once the buffer is full and on flush, the buffer only grows past the chunk size to hold a single string larger than it
+//an emitter is used by one generator on one thread at a time
+public final class Emitter implements Flushable {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    private static final String INDENT = "    ";
+
+    private final Writer writer;
+    private final WritableByteChannel channel;
+    private final ByteBuffer target;
+    private final CharsetEncoder encoder;
+    private ByteBuffer bytes; //the encoded chunk, for the byte destinations
+
+    private final int chunkSize;
+    private char[] buffer;
+    private int length = 0;
+    private long written = 0; //characters emitted so far, including the ones still in the buffer
+    private long lines = 0; //line separators emitted so far
+
+    private String[] newlines = new String[0]; //a line separator followed by the indentation of each depth
+
+    public Emitter(Writer writer) {
+        this(writer, null, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    public Emitter(Writer writer, int chunkSize) {
+        this(writer, null, null, chunkSize);
+    }
+
+    //emits UTF-8 to a channel, such as a FileChannel
+    public Emitter(WritableByteChannel channel) {
+        this(null, channel, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    public Emitter(WritableByteChannel channel, int chunkSize) {
+        this(null, channel, null, chunkSize);
+    }
+
+    //emits UTF-8 into a buffer (which may be direct) at its position, throwing a BufferOverflowException if the code doesn't fit
+    public Emitter(ByteBuffer target) {
+        this(null, null, target, DEFAULT_CHUNK_SIZE);
+    }
+
+    public Emitter(ByteBuffer target, int chunkSize) {
+        this(null, null, target, chunkSize);
+    }
+
+    private Emitter(Writer writer, WritableByteChannel channel, ByteBuffer target, int chunkSize) {
+
+        if(chunkSize < 1) {
+            throw new IllegalArgumentException("The chunk size must be positive.");
+        }
+
+        this.writer = writer;
+        this.channel = channel;
+        this.target = target;
+        this.encoder = writer == null ? StandardCharsets.UTF_8.newEncoder() : null;
+        this.chunkSize = chunkSize;
+        this.buffer = new char[chunkSize];
+    }
+
+    public void append(String string) {
+
+        int count = string.length();
+        if(length + count > buffer.length) {
+            write();
+            if(count > buffer.length) {
+                buffer = new char[count];
+            }
+        }
+
+        string.getChars(0, count, buffer, length);
+        length += count;
+        written += count;
+    }
+
+    public void append(char character) {
+
+        if(length == buffer.length) {
+            write();
+        }
+
+        buffer[length++] = character;
+        written++;
+    }
+
+    //ends the line, indenting the next one by the given depth (four spaces each)
+    public void newline(int indent) {
+
+        if(indent >= newlines.length) {
+            String[] grown = Arrays.copyOf(newlines, Math.max(indent + 1, 2 * newlines.length));
+            for(int i = newlines.length; i < grown.length; i++) {
+                grown[i] = System.lineSeparator() + INDENT.repeat(i);
+            }
+            newlines = grown;
+        }
+
+        append(newlines[indent]);
+        lines++;
+    }
+
+    //appends code spanning several lines (such as a function generated before), counting its line separators
+    public void appendLines(String code) {
+
+        append(code);
+        for(int i = code.indexOf('\n'); i >= 0; i = code.indexOf('\n', i + 1)) {
+            lines++;
+        }
+    }
+
+    //the number of characters emitted so far
+    public long getWritten() {
+        return written;
+    }
+
+    //the number of lines ended so far (by newline and appendLines), so the line being emitted is getLines() + 1
+    public long getLines() {
+        return lines;
+    }
+
+    //writes everything in the buffer to the destination and flushes it (apart from a ByteBuffer, which has nothing to flush)
+    @Override
+    public void flush() {
+        write();
+        try {
+            if(writer != null) {
+                writer.flush();
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    //writes the buffer to the destination, going back to the chunk size if it grew for a large string
+    private void write() {
+
+        try {
+            if(length == 0) {
+                return;
+            } else if(writer != null) {
+                writer.write(buffer, 0, length);
+            } else {
+                encode();
+            }
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        length = 0;
+        if(buffer.length > chunkSize) {
+            buffer = new char[chunkSize];
+        }
+    }
+
+    //encodes the buffer as UTF-8 into the destination
+    //a string is never split across chunks, so a chunk can only end in the middle of a surrogate pair if one was appended a char at a time
+    private void encode() throws IOException {
+
+        int maximum = (int) Math.ceil(length * (double) encoder.maxBytesPerChar());
+        if(bytes == null || bytes.capacity() < maximum) {
+            bytes = ByteBuffer.allocate(maximum);
+        }
+
+        bytes.clear();
+        encoder.reset();
+        CoderResult result = encoder.encode(CharBuffer.wrap(buffer, 0, length), bytes, true);
+        if(result.isError()) {
+            result.throwException();
+        }
+        encoder.flush(bytes);
+        bytes.flip();
+
+        if(channel != null) {
+            while(bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        } else {
+            target.put(bytes);
+        }
+    }
+
+}
@@ -5,12 +5,23 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class Environment {
 
+    //created objects all share one unknown type and null scope, so creating a value is a single allocation
+    //the scope is frozen, as it is reachable from every created object (create(x).getType().getScope()) and a definition in it would leak
+    //-into all of them
+    private static final Scope UNKNOWN_SCOPE = new Scope(null);
+    private static final Type UNKNOWN = new Type("Unknown", "Unknown", UNKNOWN_SCOPE);
+
+    static {
+        UNKNOWN_SCOPE.freeze();
+    }
+
     //creates PlcObject in a null scope (scope defining must be done explicitly)
     public static PlcObject create(Object value) {
-        return new PlcObject(new Scope(null), value);
+        return new PlcObject(UNKNOWN, UNKNOWN_SCOPE, value);
     }
 
     public static final PlcObject NIL = new PlcObject(Type.NIL, new Scope(null), new Object() {
@@ -22,21 +33,33 @@ public final class Environment {
 
     });
 
-    private static final Map<String, Type> TYPES = new HashMap<>();
+    //the built in types are an immutable map published when the class is initialized, so any thread can look them up without locking
+    //types registered later go in a concurrent map (which also has lock free lookups), types for a single session go in a TypeRegistry instead
+    private static final Map<String, Type> BUILTIN_TYPES;
+    private static final Map<String, Type> TYPES = new ConcurrentHashMap<>();
 
-    //gets the type from the string name from the defined hash map
+    //gets the type from the string name from the built in and registered types
     public static Type getType(String name) {
-        if (!TYPES.containsKey(name)) {
+        Type type = BUILTIN_TYPES.get(name);
+        if (type == null) {
+            type = TYPES.get(name);
+        }
+        if (type == null) {
             throw new RuntimeException("Unknown type " + name + ".");
         }
-        return TYPES.get(name);
+        return type;
     }
 
+    //returns whether the type is built in or registered
+    public static boolean hasType(String name) {
+        return BUILTIN_TYPES.containsKey(name) || TYPES.containsKey(name);
+    }
+
+    //registers a type for every session, can be called from any thread
     public static void registerType(Type type) {
-        if (TYPES.containsKey(type.getName())) {
+        if (BUILTIN_TYPES.containsKey(type.getName()) || TYPES.putIfAbsent(type.getName(), type) != null) {
             throw new IllegalArgumentException("Duplicate registration of type " + type.getName() + ".");
         }
-        TYPES.put(type.getName(), type);
     }
 
     //allows for particular types to be created for our language and are used throughout our program, most useful in the analyzer and parser for type validation
@@ -267,15 +290,13 @@ public final class Environment {
 
     }
 
+    //the built in types (and the functions and variables defined in their scopes) are never changed after this, their scopes are frozen
     static {
-        registerType(Type.ANY);
-        registerType(Type.NIL);
-        registerType(Type.COMPARABLE);
-        registerType(Type.BOOLEAN);
-        registerType(Type.INTEGER);
-        registerType(Type.DECIMAL);
-        registerType(Type.CHARACTER);
-        registerType(Type.STRING);
+        Map<String, Type> builtins = new HashMap<>();
+        for (Type type : Arrays.asList(Type.ANY, Type.NIL, Type.COMPARABLE, Type.BOOLEAN, Type.INTEGER, Type.DECIMAL, Type.CHARACTER, Type.STRING)) {
+            builtins.put(type.getName(), type);
+        }
+        BUILTIN_TYPES = Map.copyOf(builtins);
         Type.ANY.scope.defineFunction("stringify", "toString", Arrays.asList(), Type.STRING, args -> Environment.NIL);
         Type.COMPARABLE.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.COMPARABLE), Type.COMPARABLE, args -> Environment.NIL);
         Type.INTEGER.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.INTEGER), Type.INTEGER, args -> Environment.NIL);
@@ -284,6 +305,9 @@ public final class Environment {
         Type.STRING.scope.defineVariable("length", "length()", Type.INTEGER, true, Environment.NIL);
         Type.STRING.scope.defineFunction("slice", "substring", Arrays.asList(Type.ANY, Type.INTEGER, Type.INTEGER), Type.STRING, args -> Environment.NIL);
         Type.STRING.scope.defineFunction("compare", "compareTo", Arrays.asList(Type.ANY, Type.STRING), Type.STRING, args -> Environment.NIL);
+        for (Type type : BUILTIN_TYPES.values()) {
+            type.scope.freeze();
+        }
     }
 
 }
@@ -0,0 +1,67 @@
+package plc.project;
+
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+//the execution service runs many independent programs at the same time, each task on its own thread with its own Interpreter
+//an Interpreter swaps its scope on every call, so it can only run one program at a time, but any number of them can share the same
+//-analyzed (and optimized) tree: running a tree only reads it (every interpreter keeps its own function call site cache)
+//the tree must not be changed (analyzed, optimized, specialized) any more once it has been submitted
+
+//tasks run on virtual threads when the runtime has them (Java 21 and later), and otherwise on a pool with a thread per processor
+public final class ExecutionService implements AutoCloseable {
+
+    private final ExecutorService executor;
+
+    public ExecutionService() {
+        this(defaultExecutor());
+    }
+
+    //runs the programs on the given executor, which is shut down when the service is closed
+    public ExecutionService(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    //runs the main function of an analyzed source, printing to standard out
+    public Future<Environment.PlcObject> submit(Ast.Source ast) {
+        return submit(ast, System.out);
+    }
+
+    //runs the main function of an analyzed source with a new interpreter, which is closed (releasing its off heap lists) when the program ends
+    public Future<Environment.PlcObject> submit(Ast.Source ast, PrintStream out) {
+        return executor.submit(() -> {
+            try(Interpreter interpreter = new Interpreter(new Scope(null), out)) {
+                return interpreter.visit(ast);
+            }
+        });
+    }
+
+    //stops accepting programs and waits for the ones already submitted to finish
+    //a thread interrupted while waiting stops waiting (the programs keep running) with its interrupt flag set again
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while(!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                //keep waiting, the programs are never interrupted
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //virtual threads are looked up reflectively so the service still compiles and runs on Java 17
+    private static ExecutorService defaultExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch(ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+}
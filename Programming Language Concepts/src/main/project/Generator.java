@@ -1,8 +1,25 @@
 package plc.project;
 
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 //the generator generates java code from the values stored in the ast values
 //since this project does not implement its own compiler, this is why the java compiler must be used and thus,
@@ -12,71 +29,337 @@ import java.math.BigInteger;
 //-so that java code is generated efficiently
 public final class Generator implements Ast.Visitor<Void> {
 
-    private final PrintWriter writer;
+    private static final int FUNCTION_CHUNK_SIZE = 1 << 10; //a function is usually small, so it isn't worth a full sized chunk
+
+    //the size (in nodes of the tree) a function's method can have before its statements are outlined into helper methods
+    //a node compiles to a few bytes of bytecode (a load, a field access, an operator), so this keeps the method well under HotSpot's 8000 bytes
+    //-past which a method is never compiled (DontCompileHugeMethods), and far under javac's 64KB limit
+    public static final long DEFAULT_METHOD_SIZE = 1500;
+
+    private final Emitter emitter;
     private int indent = 0; //used to track the current indent of the java code
+    private final Map<Ast.Function, String> reused = new IdentityHashMap<>(); //code already generated for some functions
+    private long methodSize = DEFAULT_METHOD_SIZE;
+    private boolean exact = false;
+    private int switches = 0; //switches printed as if chains in the current function, numbering their condition variables
+    private SourceMap sourceMap = null;
+    private long firstLine = 0; //the lines the emitter had ended when the class being mapped started
+    private final Map<Ast.Function, SourceMap> reusedMaps = new IdentityHashMap<>(); //the source maps of some of the reused functions
+
+    //while an outlined function is generated, its parameters and top level variables live in a frame object, and its returns (in a helper method)
+    //-store the value in the frame and return true to the method that called the helper
+    private Set<Environment.Variable> frameVariables = null; //the parameters' and top level declarations' variables, by identity
+    private boolean inHelper = false;
+
+    private Ast.Function tailFunction = null; //the function whose statements are being printed in its tail call loop
 
     //constructor takes in a PrintWriter object
     public Generator(PrintWriter writer) {
-        this.writer = writer;
+        this(new Emitter(writer));
+    }
+
+    //generates into an emitter, which chooses where the code goes and how much of it is buffered
+    //the emitter is flushed whenever a visit (other than one nested in another) finishes
+    public Generator(Emitter emitter) {
+        this.emitter = emitter;
+    }
+
+    //sets the size (in nodes) a function's method can have before it is outlined, Long.MAX_VALUE to never outline
+    public void setMethodSize(long methodSize) {
+        this.methodSize = methodSize;
+    }
+
+    //sets whether the code has the interpreter's arithmetic (see Exact arithmetic below) instead of Java's int and double arithmetic
+    public void setExactArithmetic(boolean exact) {
+        this.exact = exact;
+    }
+
+    //records the lines of the code generated from now on in the map (see SourceMap), null to stop recording
+    //the lines are counted from the start of the class (visit(Ast.Source)), or from the start of the emitter for anything else
+    public void setSourceMap(SourceMap sourceMap) {
+        this.sourceMap = sourceMap;
+    }
+
+    //generates a function by itself, indented as it is inside the class, so its code can be reused when generating a source
+    //a function reused this way only has its first line mapped by a source map, so every line of it maps to the function
+    public static String generateFunction(Ast.Function ast) {
+        return generateFunction(ast, DEFAULT_METHOD_SIZE, false, null);
+    }
+
+    //generates a function by itself, recording its lines in sourceMap (if not null) from its first line, line 1
+    private static String generateFunction(Ast.Function ast, long methodSize, boolean exact, SourceMap sourceMap) {
+        StringWriter code = new StringWriter();
+        Generator generator = new Generator(new Emitter(code, FUNCTION_CHUNK_SIZE));
+        generator.methodSize = methodSize;
+        generator.exact = exact;
+        generator.sourceMap = sourceMap;
+        generator.indent = 1;
+        generator.visit(ast);
+        generator.emitter.flush();
+        return code.toString();
+    }
+
+    //prints the given code (from generateFunction) for the function instead of generating it again
+    public void reuse(Ast.Function ast, String code) {
+        reused.put(ast, code);
+    }
+
+    //same as visit(Ast.Source), but the functions are generated in parallel on the common ForkJoinPool
+    public Void visitParallel(Ast.Source ast) {
+        return visitParallel(ast, ForkJoinPool.commonPool());
+    }
+
+    //same as visit(Ast.Source), but the functions are generated in parallel on the given pool, each into its own string by its own Generator
+    //-(generateFunction), and then printed in source order, so the code is exactly the code visit(Ast.Source) prints
+    //generating only reads the analyzed tree, so the functions can safely be generated at the same time
+    public Void visitParallel(Ast.Source ast, ForkJoinPool pool) {
+
+        List<Ast.Function> functions = new ArrayList<Ast.Function>();
+        List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+        for(Ast.Function function : ast.getFunctions()) {
+            if(!reused.containsKey(function)) {
+                SourceMap functionMap = sourceMap == null ? null : new SourceMap(sourceMap.getClassName());
+                functions.add(function);
+                tasks.add(() -> generateFunction(function, methodSize, exact, functionMap));
+                if(functionMap != null) {
+                    reusedMaps.put(function, functionMap); //only read by this thread once the function's result has been joined
+                }
+            }
+        }
+
+        List<Future<String>> results = pool.invokeAll(tasks);
+        try {
+            for(int i = 0; i < functions.size(); i++) {
+                reused.put(functions.get(i), join(results.get(i)));
+            }
+            visit(ast);
+        } finally {
+            for(Ast.Function function : functions) {
+                reused.remove(function);
+                reusedMaps.remove(function);
+            }
+        }
+
+        return null;
+    }
+
+    //waits for a function's code, throwing the error it failed with (the first one in source order, since the results are joined in order)
+    private static String join(Future<String> result) {
+        try {
+            return result.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating functions", e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if(e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    //visits the ast, flushing everything generated to the destination afterwards
+    @Override
+    public Void visit(Ast ast) {
+        generate(ast);
+        emitter.flush();
+        return null;
+    }
+
+    //visits an ast nested in the one being generated, leaving its code in the emitter
+    //a function or statement parsed from source maps the line it starts on to its index in the source
+    private void generate(Ast ast) {
+        if(sourceMap != null && ast.getIndex() >= 0) {
+            map(ast.getIndex());
+        }
+        Ast.Visitor.super.visit(ast);
+    }
+
+    //maps the line being generated (and the ones after it) to an index in the source, -1 for code that doesn't come from the source
+    private void map(int index) {
+        if(sourceMap != null) {
+            sourceMap.map(line(), index);
+        }
+    }
+
+    //the line being generated, from the start of the class
+    private int line() {
+        return Math.toIntExact(emitter.getLines() - firstLine + 1);
     }
 
     //takes in a sequence and prints them, and does so either visiting the correlated visit function or the string directly itself
     private void print(Object... objects) {
         for (Object object : objects) {
             if (object instanceof Ast) {
-                visit((Ast) object);
+                generate((Ast) object);
             } else {
-                writer.write(object.toString());
+                emitter.append(object.toString());
             }
         }
     }
 
+    //prints a single string, which is most of what is printed, without the array of the sequence
+    private void print(String string) {
+        emitter.append(string);
+    }
+
     //automatically pushed the program printing to the next line where the parameter is how many indents it should have on that particular line
     private void newline(int indent) {
-        writer.println();
-        for (int i = 0; i < indent; i++) {
-            writer.write("    ");
-        }
+        emitter.newline(indent);
     }
 
     //prints out the source by hardcoding the main's and then printing all the globals and functions with appropriate newline spacing, all with appropriate indenting
     @Override
     public Void visit(Ast.Source ast) {
 
-        print("public class Main {");
+        Telemetry.GenerateEvent event = new Telemetry.GenerateEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long before = emitter.getWritten();
+        boolean failed = true;
+
+        try {
+            printUnit("Main", null, ast.getGlobals(), true, ast.getFunctions());
+
+            emitter.flush();
+            failed = false;
+            return null;
+        } finally {
+            Telemetry.generated(event, start, emitter.getWritten() - before, failed);
+        }
+    }
+
+    //prints a class with the given globals and functions (and the java main, which starts the program, if entry is true, and the exact arithmetic
+    //-helpers if the arithmetic is exact), separating the globals, the java main and each function with an empty line
+    private void printUnit(String name, String parent, List<Ast.Global> globals, boolean entry, List<Ast.Function> functions) {
+
+        firstLine = emitter.getLines();
+        map(-1);
+        print("public class ", name, parent == null ? "" : " extends " + parent, " {");
         newline(0);
         newline(++indent);
 
-        for(int i = 0; i < ast.getGlobals().size(); i++) {
-            print(ast.getGlobals().get(i));
-            if(i != ast.getGlobals().size() - 1) {
+        boolean first = true;
+        for(int i = 0; i < globals.size(); i++) {
+            print(globals.get(i));
+            if(i != globals.size() - 1) {
                 newline(indent);
             }
-        }
-        if(ast.getGlobals().size() != 0) {
-            newline(0);
-            newline(indent);
+            first = false;
         }
 
-        print("public static void main(String[] args) {");
-        newline(++indent);
-        print("System.exit(new Main().main());");
-        newline(--indent);
-        print("}");
+        if(entry) {
+            if(!first) {
+                newline(0);
+                newline(indent);
+            }
+            map(-1);
+            print("public static void main(String[] args) {");
+            newline(++indent);
+            print(exact ? "System.exit((int) new Main().main());" : "System.exit(new Main().main());");
+            newline(--indent);
+            print("}");
+            first = false;
+        }
 
-        for(int i = 0; i < ast.getFunctions().size(); i++) {
+        for(Ast.Function function : functions) {
+            if(!first) {
+                newline(0);
+                newline(indent);
+            }
+            print(function);
+            first = false;
+        }
 
+        if(exact) {
             newline(0);
             newline(indent);
-            print(ast.getFunctions().get(i));
-
+            map(-1);
+            printExactHelpers();
         }
 
         newline(0);
         newline(--indent);
         print("}");
+    }
 
-        return null;
+    //generates the source into a file, streaming the code to it a chunk at a time instead of holding all of it in memory
+    //the source map of the Main class is written next to it, in the file with .map added to its name
+    public static void generate(Ast.Source ast, Path file) throws IOException {
+        SourceMap sourceMap = new SourceMap("Main");
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Generator generator = new Generator(new Emitter(channel));
+            generator.sourceMap = sourceMap;
+            generator.visit(ast);
+        }
+        sourceMap.write(file.resolveSibling(file.getFileName() + ".map"));
+    }
+
+    //generates the source into the directory as one or more classes, starting a new class whenever the next function would take the code of the
+    //-current one past unitSize characters, so no single class gets too large for javac or the class file format
+    //the classes form an inheritance chain, MainPart1 (with the globals), MainPart2 extends MainPart1, ..., and Main (with the java main) extends
+    //-the last part, which works since a function can only call itself and the functions before it, which are all in its class or a superclass
+    //a source that fits in a single class is generated as exactly the Main class visit(Ast.Source) prints
+    //returns the java files written, in the order of the chain, every class's source map is written next to it (Main.java.map for Main.java)
+    public static List<Path> generate(Ast.Source ast, Path directory, long unitSize) throws IOException {
+
+        //the sizes are measured first (without keeping any code) so every class is streamed straight to its file
+        List<List<Ast.Function>> units = new ArrayList<List<Ast.Function>>();
+        List<Ast.Function> unit = new ArrayList<Ast.Function>();
+        long size = 0;
+        for(Ast.Global global : ast.getGlobals()) {
+            size += measure(global);
+        }
+        for(Ast.Function function : ast.getFunctions()) {
+            long functionSize = measure(function);
+            if(!unit.isEmpty() && size + functionSize > unitSize) {
+                units.add(unit);
+                unit = new ArrayList<Ast.Function>();
+                size = 0;
+            }
+            unit.add(function);
+            size += functionSize;
+        }
+        units.add(unit);
+
+        List<Path> files = new ArrayList<Path>();
+        for(int i = 0; i < units.size(); i++) {
+            boolean last = i == units.size() - 1;
+            String name = last ? "Main" : "MainPart" + (i + 1);
+            Path file = directory.resolve(name + ".java");
+            SourceMap sourceMap = new SourceMap(name);
+            try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                Generator generator = new Generator(new Emitter(channel));
+                generator.sourceMap = sourceMap;
+                generator.printUnit(name, i == 0 ? null : "MainPart" + i, i == 0 ? ast.getGlobals() : List.of(), last, units.get(i));
+                generator.emitter.flush();
+            }
+            sourceMap.write(directory.resolve(name + ".java.map"));
+            files.add(file);
+        }
+
+        return files;
+    }
+
+    //generates a class of some functions with exact arithmetic and nothing else (no globals and no java main), for a caller that calls
+    //-the functions itself, which must include every function they call
+    static String generateClass(String name, List<Ast.Function> functions) {
+        StringWriter code = new StringWriter();
+        Generator generator = new Generator(new Emitter(code, FUNCTION_CHUNK_SIZE));
+        generator.exact = true;
+        generator.printUnit(name, null, List.of(), false, functions);
+        generator.emitter.flush();
+        return code.toString();
+    }
+
+    //the number of characters of code generated for a global or function
+    private static long measure(Ast ast) {
+        Generator generator = new Generator(new Emitter(Writer.nullWriter(), FUNCTION_CHUNK_SIZE));
+        generator.indent = 1;
+        generator.generate(ast);
+        return generator.emitter.getWritten();
     }
 
     //prints out differently depending on whether the ast value is of type list, mutable, or immutable
@@ -88,19 +371,19 @@ public final class Generator implements Ast.Visitor<Void> {
 
         if(ast.getValue().isPresent() && ast.getValue().get() instanceof Ast.Expression.PlcList) {
 
-            print(ast.getVariable().getType().getJvmName());
+            print(type(ast.getVariable().getType()));
             print("[]");
             print(" ");
-            print(ast.getName()); //is there a reason why this isn't ast.getVariable().getjvmname(); ?
+            print(ast.getVariable().getJvmName()); //same name as the accesses and element stores print
             print(" ");
             print("=");
             print(" ");
-            visit(ast.getValue().get()); //prints PLC list
+            generate(ast.getValue().get()); //prints PLC list
             print(";");
 
         } else if(ast.getMutable()) {
 
-            print(ast.getVariable().getType().getJvmName());
+            print(type(ast.getVariable().getType()));
             print(" ");
             print(ast.getVariable().getJvmName());
             if(ast.getValue().isPresent()) {//why does this say always true?
@@ -115,7 +398,7 @@ public final class Generator implements Ast.Visitor<Void> {
 
             print("final");
             print(" ");
-            print(ast.getVariable().getType().getJvmName());
+            print(type(ast.getVariable().getType()));
             print(" ");
             print(ast.getVariable().getJvmName());
             if(ast.getValue().isPresent()) {//why does this say always true
@@ -135,19 +418,28 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Function ast) {
 
-        print(ast.getFunction().getReturnType().getJvmName());
+        if(reused.containsKey(ast)) {
+            if(sourceMap != null && reusedMaps.containsKey(ast)) {
+                sourceMap.map(reusedMaps.get(ast), line() - 1);
+            }
+            emitter.appendLines(reused.get(ast));
+            return null;
+        }
+        switches = 0;
+
+        print(type(ast.getFunction().getReturnType()));
         print(" ");
         print(ast.getFunction().getJvmName());
 
         print("(");
         if(ast.getParameterTypeNames().size() != 0) {
             if(ast.getParameterTypeNames().size() == 1) {
-                print(Environment.getType(ast.getParameterTypeNames().get(0)).getJvmName()); //converts our type to java type
+                print(type(ast.getFunction().getParameterTypes().get(0))); //converts our type to java type
                 print(" ");
                 print(ast.getParameters().get(0));
             } else {
                 for(int i = 0; i < ast.getParameterTypeNames().size(); i++) {
-                    print(Environment.getType(ast.getParameterTypeNames().get(i)).getJvmName()); //converts our type to java type
+                    print(type(ast.getFunction().getParameterTypes().get(i))); //converts our type to java type
                     print(" ");
                     print(ast.getParameters().get(i));
                     if(i != ast.getParameterTypeNames().size() - 1) {
@@ -166,8 +458,19 @@ public final class Generator implements Ast.Visitor<Void> {
             return null;
         }
 
+        List<List<Ast.Statement>> chunks = chunk(ast.getStatements());
+        if(chunks.size() > 1) {
+            printOutlined(ast, chunks);
+            return null;
+        }
+
         newline(++indent);
 
+        if(containsTailCall(ast.getStatements(), ast)) {
+            printTailLoop(ast);
+            return null;
+        }
+
         for(int i = 0; i < ast.getStatements().size(); i++) {
 
             print(ast.getStatements().get(i));
@@ -184,6 +487,452 @@ public final class Generator implements Ast.Visitor<Void> {
         return null;
     }
 
+    /**
+     * Tail calls, a function that returns a call to itself has its body in a loop, and the self tail call assigns the call's arguments to the
+     * parameters and continues the loop instead of calling, so the recursion runs in a single frame (the interpreter does the same).
+     * An outlined function keeps its calls, as its returns may be in a helper, outside of the loop.
+     */
+
+    //prints the function's statements in the loop, breaking out of it if they can complete normally (where the method ends as it did)
+    private void printTailLoop(Ast.Function ast) {
+
+        tailFunction = ast;
+        try {
+            print("$tail: while (true) {");
+            newline(++indent);
+            for(int i = 0; i < ast.getStatements().size(); i++) {
+                print(ast.getStatements().get(i));
+                if(i != ast.getStatements().size() - 1) {
+                    newline(indent);
+                }
+            }
+            if(completesNormally(ast.getStatements())) {
+                newline(indent);
+                print("break $tail;");
+            }
+            newline(--indent);
+            print("}");
+        } finally {
+            tailFunction = null;
+        }
+
+        newline(--indent);
+        print("}");
+    }
+
+    //prints a self tail call, each argument stored in a temporary first (as a later argument may use a parameter an earlier one replaces)
+    //-unless there is only one, and an argument that is its own parameter left as it is
+    private void printTailCall(Ast.Expression.Function call) {
+
+        List<Integer> changed = new ArrayList<Integer>();
+        for(int i = 0; i < call.getArguments().size(); i++) {
+            Ast.Expression argument = call.getArguments().get(i);
+            if(!(argument instanceof Ast.Expression.Access) || ((Ast.Expression.Access) argument).getOffset().isPresent()
+                    || !((Ast.Expression.Access) argument).getName().equals(tailFunction.getParameters().get(i))) {
+                changed.add(i);
+            }
+        }
+
+        print("{");
+        newline(++indent);
+        if(changed.size() == 1) {
+            print(tailFunction.getParameters().get(changed.get(0)), " = ", call.getArguments().get(changed.get(0)), ";");
+            newline(indent);
+        } else {
+            for(int i : changed) {
+                print(type(tailFunction.getFunction().getParameterTypes().get(i)), " $", tailFunction.getParameters().get(i), " = ", call.getArguments().get(i), ";");
+                newline(indent);
+            }
+            for(int i : changed) {
+                print(tailFunction.getParameters().get(i), " = $", tailFunction.getParameters().get(i), ";");
+                newline(indent);
+            }
+        }
+        print("continue $tail;");
+        newline(--indent);
+        print("}");
+    }
+
+    //whether a return is a self tail call of the function whose loop is being printed
+    private boolean isTailCall(Ast.Statement.Return ast) {
+        return tailFunction != null && isSelfCall(ast.getValue(), tailFunction);
+    }
+
+    private static boolean isSelfCall(Ast.Expression expression, Ast.Function function) {
+        return expression instanceof Ast.Expression.Function && ((Ast.Expression.Function) expression).getFunction() == function.getFunction();
+    }
+
+    private static boolean containsTailCall(List<? extends Ast.Statement> statements, Ast.Function function) {
+
+        for(Ast.Statement statement : statements) {
+            if(statement instanceof Ast.Statement.Return) {
+                if(isSelfCall(((Ast.Statement.Return) statement).getValue(), function)) {
+                    return true;
+                }
+            } else if(statement instanceof Ast.Statement.If) {
+                if(containsTailCall(((Ast.Statement.If) statement).getThenStatements(), function) || containsTailCall(((Ast.Statement.If) statement).getElseStatements(), function)) {
+                    return true;
+                }
+            } else if(statement instanceof Ast.Statement.Switch) {
+                if(containsTailCall(((Ast.Statement.Switch) statement).getCases(), function)) {
+                    return true;
+                }
+            } else if(statement instanceof Ast.Statement.Case) {
+                if(containsTailCall(((Ast.Statement.Case) statement).getStatements(), function)) {
+                    return true;
+                }
+            } else if(statement instanceof Ast.Statement.While) {
+                if(containsTailCall(((Ast.Statement.While) statement).getStatements(), function)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Outlining, a function whose method would be larger than the method size has its top level statements split into runs, each run but the last
+     * moved into a helper method and the last left in the function's method, so every method can still be compiled by the JIT.
+     * The parameters and top level variables are fields of a frame object (a class generated after the helpers) shared by the method and its
+     * helpers, variables declared in a nested block stay local since a block never spans two helpers.
+     */
+
+    //splits the statements into runs of at most the method size (a single statement larger than it gets a run of its own)
+    //declarations without a value are dropped, as a field already holds its default value
+    private List<List<Ast.Statement>> chunk(List<Ast.Statement> statements) {
+
+        List<List<Ast.Statement>> chunks = new ArrayList<List<Ast.Statement>>();
+        List<Ast.Statement> chunk = new ArrayList<Ast.Statement>();
+        long total = 0;
+        long size = 0;
+
+        for(Ast.Statement statement : statements) {
+            long statementSize = Telemetry.count(statement);
+            if(!chunk.isEmpty() && size + statementSize > methodSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<Ast.Statement>();
+                size = 0;
+            }
+            if(!(statement instanceof Ast.Statement.Declaration) || ((Ast.Statement.Declaration) statement).getValue().isPresent()) {
+                chunk.add(statement);
+            }
+            size += statementSize;
+            total += statementSize;
+        }
+        chunks.add(chunk);
+
+        if(total <= methodSize) {
+            return List.of(statements);
+        }
+        chunks.removeIf(List::isEmpty);
+
+        return chunks;
+    }
+
+    //prints the function's method, calling its helpers in order and then running the last run itself, followed by the helpers and the frame class
+    private void printOutlined(Ast.Function ast, List<List<Ast.Statement>> chunks) {
+
+        String prefix = ast.getFunction().getJvmName() + "$" + ast.getParameters().size();
+        String frame = prefix + "$Frame";
+
+        List<Ast.Statement.Declaration> declarations = new ArrayList<Ast.Statement.Declaration>();
+        for(Ast.Statement statement : ast.getStatements()) {
+            if(statement instanceof Ast.Statement.Declaration) {
+                declarations.add((Ast.Statement.Declaration) statement);
+            }
+        }
+        List<Boolean> returns = new ArrayList<Boolean>();
+        for(List<Ast.Statement> chunk : chunks) {
+            returns.add(containsReturn(chunk));
+        }
+
+        //only the last run returns from the method itself, so the frame only needs a result if a helper returns
+        boolean helperReturns = returns.subList(0, returns.size() - 1).contains(true);
+
+        frameVariables = Collections.newSetFromMap(new IdentityHashMap<>());
+        frameVariables.addAll(ast.getParameterVariables());
+        for(Ast.Statement.Declaration declaration : declarations) {
+            frameVariables.add(declaration.getVariable());
+        }
+
+        try {
+            newline(++indent);
+            print(frame, " $frame = new ", frame, "();");
+            for(String parameter : ast.getParameters()) {
+                newline(indent);
+                print("$frame.", parameter, " = ", parameter, ";");
+            }
+
+            for(int i = 0; i < chunks.size() - 1; i++) {
+                newline(indent);
+                if(returns.get(i)) {
+                    print("if(", prefix, "$helper", i + 1, "($frame)) {");
+                    newline(++indent);
+                    print("return $frame.$result;");
+                    newline(--indent);
+                    print("}");
+                } else {
+                    print(prefix, "$helper", i + 1, "($frame);");
+                }
+            }
+            for(Ast.Statement statement : chunks.get(chunks.size() - 1)) {
+                newline(indent);
+                print(statement);
+            }
+            newline(--indent);
+            print("}");
+
+            inHelper = true;
+            for(int i = 0; i < chunks.size() - 1; i++) {
+                newline(0);
+                newline(indent);
+                print(returns.get(i) ? "boolean " : "void ", prefix, "$helper", i + 1, "(", frame, " $frame) {");
+                newline(++indent);
+                for(int j = 0; j < chunks.get(i).size(); j++) {
+                    print(chunks.get(i).get(j));
+                    if(j != chunks.get(i).size() - 1) {
+                        newline(indent);
+                    }
+                }
+                if(returns.get(i)) {
+                    newline(indent);
+                    print("return false;");
+                }
+                newline(--indent);
+                print("}");
+            }
+        } finally {
+            frameVariables = null;
+            inHelper = false;
+        }
+
+        newline(0);
+        newline(indent);
+        map(-1);
+        print("static final class ", frame, " {");
+        newline(++indent);
+        List<String> fields = new ArrayList<String>();
+        for(int i = 0; i < ast.getParameters().size(); i++) {
+            fields.add(type(ast.getFunction().getParameterTypes().get(i)) + " " + ast.getParameters().get(i) + ";");
+        }
+        for(Ast.Statement.Declaration declaration : declarations) {
+            fields.add(type(declaration.getVariable().getType()) + " " + declaration.getVariable().getJvmName() + ";");
+        }
+        if(helperReturns) {
+            fields.add(type(ast.getFunction().getReturnType()) + " $result;");
+        }
+        for(int i = 0; i < fields.size(); i++) {
+            print(fields.get(i));
+            if(i != fields.size() - 1) {
+                newline(indent);
+            }
+        }
+        newline(--indent);
+        print("}");
+    }
+
+    //whether a variable lives in the frame of the function being outlined
+    private boolean isFrameVariable(Environment.Variable variable) {
+        return frameVariables != null && frameVariables.contains(variable);
+    }
+
+    private static boolean containsReturn(List<? extends Ast.Statement> statements) {
+
+        for(Ast.Statement statement : statements) {
+            if(statement instanceof Ast.Statement.Return) {
+                return true;
+            } else if(statement instanceof Ast.Statement.If) {
+                if(containsReturn(((Ast.Statement.If) statement).getThenStatements()) || containsReturn(((Ast.Statement.If) statement).getElseStatements())) {
+                    return true;
+                }
+            } else if(statement instanceof Ast.Statement.Switch) {
+                if(containsReturn(((Ast.Statement.Switch) statement).getCases())) {
+                    return true;
+                }
+            } else if(statement instanceof Ast.Statement.Case) {
+                if(containsReturn(((Ast.Statement.Case) statement).getStatements())) {
+                    return true;
+                }
+            } else if(statement instanceof Ast.Statement.While) {
+                if(containsReturn(((Ast.Statement.While) statement).getStatements())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Exact arithmetic, the code computes exactly what the interpreter computes (or fails) instead of wrapping around at 32 bits and rounding
+     * decimals to doubles. Integers are longs, with every operation checked (Math.addExact and friends, and the helpers below for division and
+     * exponentiation) so a result outside of the long range throws an ArithmeticException instead of being wrong. Decimals are BigDecimals with
+     * the interpreter's operations, as a double can't give the interpreter's results (0.1 + 0.2, or division rounded to the dividend's scale).
+     * A caller that can fall back to arbitrary precision (the interpreter) catches the ArithmeticException and runs the code there instead.
+     */
+
+    //the java type of a PLC type
+    private String type(Environment.Type type) {
+        if(exact && type.equals(Environment.Type.INTEGER)) {
+            return "long";
+        } else if(exact && type.equals(Environment.Type.DECIMAL)) {
+            return "java.math.BigDecimal";
+        }
+        return type.getJvmName();
+    }
+
+    //prints an exact integer or decimal operation, or an equality of objects, returning false for any other binary (comparisons of
+    //-integers, characters and booleans, logical operators, and concatenation), which is printed as usual
+    //the interpreter compares values with equals, which java's == only matches for the primitives (long, char and boolean), so any other
+    //-equality (strings, or values of type Any) is printed as java.util.Objects.equals
+    private boolean printExact(Ast.Expression.Binary ast) {
+
+        Environment.Type type = ast.getLeft().getType();
+        String operator = ast.getOperator();
+
+        if(ast.getType().equals(Environment.Type.STRING)) {
+            return false;
+        } else if((operator.equals("==") || operator.equals("!=")) && !type.equals(Environment.Type.DECIMAL)
+                && !(isPrimitive(type) && isPrimitive(ast.getRight().getType()))) {
+            print(operator.equals("!=") ? "!" : "", "java.util.Objects.equals(", ast.getLeft(), ", ", ast.getRight(), ")");
+        } else if(type.equals(Environment.Type.INTEGER)) {
+            if(operator.equals("+")) {
+                print("Math.addExact(", ast.getLeft(), ", ", ast.getRight(), ")");
+            } else if(operator.equals("-")) {
+                print("Math.subtractExact(", ast.getLeft(), ", ", ast.getRight(), ")");
+            } else if(operator.equals("*")) {
+                print("Math.multiplyExact(", ast.getLeft(), ", ", ast.getRight(), ")");
+            } else if(operator.equals("/")) {
+                print("$Exact.divide(", ast.getLeft(), ", ", ast.getRight(), ")");
+            } else if(operator.equals("^")) {
+                print("$Exact.power(", ast.getLeft(), ", ", ast.getRight(), ")");
+            } else {
+                return false;
+            }
+        } else if(type.equals(Environment.Type.DECIMAL)) {
+            if(operator.equals("+")) {
+                print(ast.getLeft(), ".add(", ast.getRight(), ")");
+            } else if(operator.equals("-")) {
+                print(ast.getLeft(), ".subtract(", ast.getRight(), ")");
+            } else if(operator.equals("*")) {
+                print(ast.getLeft(), ".multiply(", ast.getRight(), ")");
+            } else if(operator.equals("/")) {
+                print("$Exact.divide(", ast.getLeft(), ", ", ast.getRight(), ")");
+            } else if(operator.equals("^")) {
+                print("$Exact.power(", ast.getLeft(), ", ", ast.getRight(), ")");
+            } else if(operator.equals("==")) {
+                print(ast.getLeft(), ".equals(", ast.getRight(), ")"); //the interpreter compares decimals with equals, so 1.0 isn't 1.00
+            } else if(operator.equals("!=")) {
+                print("!", ast.getLeft(), ".equals(", ast.getRight(), ")");
+            } else {
+                print(ast.getLeft(), ".compareTo(", ast.getRight(), ") ", operator, " 0");
+            }
+        } else {
+            return false;
+        }
+
+        return true;
+    }
+
+    //whether exact code holds values of the type in a java primitive
+    private static boolean isPrimitive(Environment.Type type) {
+        return type.equals(Environment.Type.INTEGER) || type.equals(Environment.Type.CHARACTER) || type.equals(Environment.Type.BOOLEAN);
+    }
+
+    private static int exactLabel(BigInteger literal) {
+        if(literal.bitLength() >= Integer.SIZE) {
+            throw new RuntimeException("The case " + literal + " is outside of the range of a java switch.");
+        }
+        return literal.intValue();
+    }
+
+    //an int that none of the cases of a switch over integers are
+    private static int unusedLabel(Ast.Statement.Switch ast) {
+
+        Set<Integer> labels = new HashSet<Integer>();
+        for(Ast.Statement.Case statement : ast.getCases()) {
+            if(statement.getValue().isPresent() && statement.getValue().get() instanceof Ast.Expression.Literal) {
+                labels.add(exactLabel((BigInteger) ((Ast.Expression.Literal) statement.getValue().get()).getLiteral()));
+            }
+        }
+
+        int unused = Integer.MIN_VALUE;
+        while(labels.contains(unused)) {
+            unused++;
+        }
+
+        return unused;
+    }
+
+    //prints the class of the helpers exact code calls, which mirror the interpreter's division and exponentiation
+    private void printExactHelpers() {
+
+        String[] lines = {
+                "static final class $Exact {",
+                "",
+                "    static long divide(long left, long right) {",
+                "        if(right == 0) {",
+                "            throw new RuntimeException(\"Cannot divide by zero in BigInteger\");",
+                "        } else if(left == Long.MIN_VALUE && right == -1) {",
+                "            throw new ArithmeticException(\"long overflow\");",
+                "        }",
+                "        return left / right;",
+                "    }",
+                "",
+                "    static java.math.BigDecimal divide(java.math.BigDecimal left, java.math.BigDecimal right) {",
+                "        if(right.equals(new java.math.BigDecimal(\"0.0\"))) {",
+                "            throw new RuntimeException(\"Cannot divide by zero in BigDecimal\");",
+                "        }",
+                "        return left.divide(right, java.math.RoundingMode.HALF_EVEN);",
+                "    }",
+                "",
+                "    static long power(long base, long exponent) {",
+                "        if(exponent < 0) {",
+                "            if(base == 0) {",
+                "                throw new RuntimeException(\"Cannot divide by zero in BigInteger\");",
+                "            } else if(base == 1 || base == -1) {",
+                "                return (exponent & 1) == 0 ? 1 : base;",
+                "            }",
+                "            return 0;",
+                "        }",
+                "        long result = 1;",
+                "        while(exponent > 0) {",
+                "            if((exponent & 1) == 1) {",
+                "                result = Math.multiplyExact(result, base);",
+                "            }",
+                "            exponent >>= 1;",
+                "            if(exponent > 0) {",
+                "                base = Math.multiplyExact(base, base);",
+                "            }",
+                "        }",
+                "        return result;",
+                "    }",
+                "",
+                "    static java.math.BigDecimal power(java.math.BigDecimal base, long exponent) {",
+                "        if(Math.abs(exponent) > 999999999) {",
+                "            throw new RuntimeException(\"Exponent is too large\");",
+                "        } else if(exponent < 0 && base.signum() == 0) {",
+                "            throw new RuntimeException(\"Cannot divide by zero in BigDecimal\");",
+                "        }",
+                "        return base.pow((int) exponent, java.math.MathContext.DECIMAL128);",
+                "    }",
+                "",
+                "    static int label(long value, int unused) {",
+                "        return value == (int) value ? (int) value : unused;",
+                "    }",
+                "",
+                "}"
+        };
+
+        for(int i = 0; i < lines.length; i++) {
+            print(lines[i]);
+            if(i != lines.length - 1) {
+                newline(lines[i + 1].isEmpty() ? 0 : indent);
+            }
+        }
+    }
+
     //prints expression stored in ast
     @Override
     public Void visit(Ast.Statement.Expression ast) {
@@ -197,7 +946,12 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Statement.Declaration ast) {
 
-        print(ast.getVariable().getType().getJvmName());
+        if(isFrameVariable(ast.getVariable())) {
+            print("$frame.", ast.getVariable().getJvmName(), " = ", ast.getValue().get(), ";");
+            return null;
+        }
+
+        print(type(ast.getVariable().getType()));
         print(" ");
         print(ast.getVariable().getJvmName());
 
@@ -277,10 +1031,21 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Statement.Switch ast) {
 
+        if(!isJavaSwitch(ast)) {
+            printSwitchChain(ast);
+            return null;
+        }
+
         print("switch");
         print(" ");
         print("(");
-        print(ast.getCondition());
+        if(exact && ast.getCondition().getType().equals(Environment.Type.INTEGER)) {
+            //java can't switch over a long, so the value is switched over as an int, with the values outside of the int range (which match no
+            //-case) mapped to an int that isn't a case either
+            print("$Exact.label(", ast.getCondition(), ", ", unusedLabel(ast), ")");
+        } else {
+            print(ast.getCondition());
+        }
         print(")");
         print(" ");
         print("{");
@@ -310,7 +1075,11 @@ public final class Generator implements Ast.Visitor<Void> {
         if(ast.getValue().isPresent()) {
             print("case");
             print(" ");
-            print(ast.getValue().get());
+            if(exact && ast.getValue().get() instanceof Ast.Expression.Literal && ast.getValue().get().getType().equals(Environment.Type.INTEGER)) {
+                print(exactLabel((BigInteger) ((Ast.Expression.Literal) ast.getValue().get()).getLiteral()));
+            } else {
+                print(ast.getValue().get());
+            }
             print(":");
             newline(++indent);
             for(int i = 0; i < ast.getStatements().size(); i++) {
@@ -319,6 +1088,13 @@ public final class Generator implements Ast.Visitor<Void> {
                     newline(indent);
                 }
             }
+            //a case only runs its own statements, a break after statements that can't complete (a return) would be unreachable
+            if(completesNormally(ast.getStatements())) {
+                if(!ast.getStatements().isEmpty()) {
+                    newline(indent);
+                }
+                print("break;");
+            }
             newline(--indent);
 
         } else {
@@ -339,6 +1115,105 @@ public final class Generator implements Ast.Visitor<Void> {
         return null;
     }
 
+    //a switch over integers, characters or strings whose cases are distinct literals is printed as a java switch, which javac compiles to a
+    //-tableswitch (dense cases) or lookupswitch (sparse cases), any other switch is printed as an if chain
+    private static boolean isJavaSwitch(Ast.Statement.Switch ast) {
+
+        Environment.Type type = ast.getCondition().getType();
+        if(!type.equals(Environment.Type.INTEGER) && !type.equals(Environment.Type.CHARACTER) && !type.equals(Environment.Type.STRING)) {
+            return false;
+        }
+
+        Set<Object> labels = new HashSet<Object>();
+        for(Ast.Statement.Case statement : ast.getCases()) {
+            if(statement.getValue().isPresent()) {
+                if(!(statement.getValue().get() instanceof Ast.Expression.Literal) || !labels.add(((Ast.Expression.Literal) statement.getValue().get()).getLiteral())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    //prints a switch as a block that evaluates the condition once into a variable and compares it to each case in order
+    private void printSwitchChain(Ast.Statement.Switch ast) {
+
+        String name = "$switch" + switches++;
+        String type = type(ast.getCondition().getType());
+        boolean primitive = type.equals("int") || type.equals("long") || type.equals("char") || type.equals("boolean") || type.equals("double");
+
+        print("{");
+        newline(++indent);
+        print(type, " ", name, " = ", ast.getCondition(), ";");
+        newline(indent);
+
+        for(int i = 0; i < ast.getCases().size(); i++) {
+
+            Ast.Statement.Case statement = ast.getCases().get(i);
+            if(i == 0 && !statement.getValue().isPresent()) { //only a default
+                for(int j = 0; j < statement.getStatements().size(); j++) {
+                    print(statement.getStatements().get(j));
+                    if(j != statement.getStatements().size() - 1) {
+                        newline(indent);
+                    }
+                }
+                break;
+            }
+
+            if(i != 0) {
+                print(" else ");
+            }
+            if(statement.getValue().isPresent() && primitive) {
+                print("if (", name, " == ", statement.getValue().get(), ") {");
+            } else if(statement.getValue().isPresent()) {
+                print("if (java.util.Objects.equals(", name, ", ", statement.getValue().get(), ")) {");
+            } else {
+                print("{");
+            }
+            newline(++indent);
+            for(int j = 0; j < statement.getStatements().size(); j++) {
+                print(statement.getStatements().get(j));
+                if(j != statement.getStatements().size() - 1) {
+                    newline(indent);
+                }
+            }
+            newline(--indent);
+            print("}");
+        }
+
+        newline(--indent);
+        print("}");
+    }
+
+    //whether java considers that the statements can complete normally (run past their end), used to leave out unreachable breaks
+    private static boolean completesNormally(List<? extends Ast.Statement> statements) {
+
+        if(statements.isEmpty()) {
+            return true;
+        }
+
+        Ast.Statement last = statements.get(statements.size() - 1);
+        if(last instanceof Ast.Statement.Return) {
+            return false;
+        } else if(last instanceof Ast.Statement.If) {
+            Ast.Statement.If statement = (Ast.Statement.If) last;
+            return statement.getElseStatements().isEmpty() || completesNormally(statement.getThenStatements()) || completesNormally(statement.getElseStatements());
+        } else if(last instanceof Ast.Statement.While) {
+            Ast.Expression condition = ((Ast.Statement.While) last).getCondition();
+            return !(condition instanceof Ast.Expression.Literal && Boolean.TRUE.equals(((Ast.Expression.Literal) condition).getLiteral()));
+        } else if(last instanceof Ast.Statement.Switch) {
+            for(Ast.Statement.Case statement : ((Ast.Statement.Switch) last).getCases()) {
+                if(completesNormally(statement.getStatements())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        return true;
+    }
+
     //prints out the condition and all statements for the while statement, all with appropriate indenting
     @Override
     public Void visit(Ast.Statement.While ast) {
@@ -377,6 +1252,15 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Statement.Return ast) {
 
+        if(inHelper) {
+            print("$frame.$result = ", ast.getValue(), ";");
+            print(" return true;");
+            return null;
+        } else if(isTailCall(ast)) {
+            printTailCall((Ast.Expression.Function) ast.getValue());
+            return null;
+        }
+
         print("return");
         print(" ");
 
@@ -403,6 +1287,10 @@ public final class Generator implements Ast.Visitor<Void> {
             print("'");
             print(lit);
             print("'");
+        } else if(litType.equals(Environment.Type.INTEGER) && exact) {
+            print(lit, "L");
+        } else if(litType.equals(Environment.Type.DECIMAL) && exact) {
+            print("new java.math.BigDecimal(\"", ((BigDecimal) lit).toString(), "\")");
         } else if(litType.equals(Environment.Type.INTEGER)) {
             BigInteger intVal = (BigInteger) lit;
             print(intVal.intValue());
@@ -432,10 +1320,18 @@ public final class Generator implements Ast.Visitor<Void> {
 
     //prints out the left then the operator then the right for a binary operation
     //unless it is exponents, then must call Math.pow() instead of a (left operator right) format
+    //Math.pow() returns a double, so an integer power is cast back to int (a negative power truncates towards zero like the interpreter)
     @Override
     public Void visit(Ast.Expression.Binary ast) {
 
+        if(exact && printExact(ast)) {
+            return null;
+        }
+
         if(ast.getOperator().equals("^")) {
+            if(ast.getType().equals(Environment.Type.INTEGER)) {
+                print("(int) ");
+            }
             print("Math.pow(");
             print(ast.getLeft());
             print(", ");
@@ -461,9 +1357,14 @@ public final class Generator implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Expression.Access ast) {
 
+        if(isFrameVariable(ast.getVariable())) {
+            print("$frame.");
+        }
         print(ast.getVariable().getJvmName());
 
-        if(ast.getOffset().isPresent()) {
+        if(ast.getOffset().isPresent() && exact) {
+            print("[Math.toIntExact(", ast.getOffset().get(), ")]");
+        } else if(ast.getOffset().isPresent()) {
             print("[");
             print(ast.getOffset().get());
             print("]");
@@ -0,0 +1,194 @@
+package plc.project;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//the incremental compiler compiles successive versions of the same program, only analyzing and generating the functions that changed
+//-(or whose dependencies changed) since the last successful compile and reusing the analyzed tree and generated Java of the others
+//every version is still lexed and parsed in full (both are linear and cheap next to analysis and generation), and globals are re-analyzed
+
+//a function depends on the globals and functions it references, which are known from the variables and functions the analyzer bound
+//-its accesses and calls to, and on nothing else: a function's analysis and code only change when its own text or the signature (type,
+//-mutability, parameter and return types) of something it references changes, or when it references something that no longer exists
+public final class IncrementalCompiler {
+
+    //the analyzed tree, generated code and dependencies of a function from an earlier compile
+    private static final class CachedFunction {
+
+        private final String text; //the function as it was parsed, before analysis
+        private final Ast.Function ast;
+        private final String code;
+        private final Map<String, String> dependencies; //dependency to its signature when the function was analyzed
+
+        private CachedFunction(String text, Ast.Function ast, String code, Map<String, String> dependencies) {
+            this.text = text;
+            this.ast = ast;
+            this.code = code;
+            this.dependencies = dependencies;
+        }
+
+    }
+
+    private Map<String, CachedFunction> cache = new HashMap<>(); //by function name/arity
+    private final List<String> recompiled = new ArrayList<>();
+
+    //compiles a version of the program to Java, throwing the same errors as compiling it from scratch
+    //the cache is only updated when the compile succeeds, so a version with an error doesn't invalidate anything
+    public String compile(String source) {
+
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        Analyzer analyzer = new Analyzer(new Scope(null));
+        Map<String, CachedFunction> compiled = new HashMap<>();
+        List<String> changed = new ArrayList<>();
+
+        //the current signature of every global and every function defined so far (the ones a function may reference)
+        Map<String, String> signatures = new HashMap<>();
+        Set<Environment.Variable> globals = new HashSet<>();
+        signatures.put(key(analyzer.getScope().lookupFunction("print", 1)), signature(analyzer.getScope().lookupFunction("print", 1)));
+        for(Ast.Global global : ast.getGlobals()) {
+            analyzer.visit(global);
+            globals.add(global.getVariable());
+            signatures.put(key(global.getVariable()), signature(global.getVariable()));
+        }
+
+        List<Ast.Function> functions = new ArrayList<>();
+        for(Ast.Function function : ast.getFunctions()) {
+
+            String name = function.getName() + "/" + function.getParameters().size();
+            String text = function.toString();
+            CachedFunction cached = cache.get(name);
+
+            if(cached != null && cached.text.equals(text) && isValid(cached, name, signatures)) {
+                Environment.Function signature = cached.ast.getFunction();
+                analyzer.getScope().defineFunction(signature.getName(), signature.getJvmName(), signature.getParameterTypes(), signature.getReturnType(), args -> Environment.NIL);
+                compiled.put(name, cached);
+                functions.add(cached.ast);
+            } else {
+                analyzer.visit(function);
+                Map<String, String> dependencies = new HashMap<>();
+                collect(function.getStatements(), globals, dependencies);
+                compiled.put(name, new CachedFunction(text, function, Generator.generateFunction(function), dependencies));
+                functions.add(function);
+                changed.add(name);
+            }
+            signatures.put(name, signature(compiled.get(name).ast.getFunction()));
+        }
+
+        Environment.Function main = analyzer.getScope().lookupFunction("main", 0);
+        Analyzer.requireAssignable(Environment.Type.INTEGER, main.getReturnType());
+
+        StringWriter code = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(code));
+        for(Ast.Function function : functions) {
+            generator.reuse(function, compiled.get(function.getName() + "/" + function.getParameters().size()).code);
+        }
+        generator.visit(new Ast.Source(ast.getGlobals(), functions));
+
+        cache = compiled;
+        recompiled.clear();
+        recompiled.addAll(changed);
+
+        return code.toString();
+    }
+
+    //the functions (as name/arity) that the last successful compile analyzed and generated instead of reusing, as an immutable copy
+    public List<String> getRecompiled() {
+        return List.copyOf(recompiled);
+    }
+
+    //a cached function is still valid if everything it references (other than itself, whose signature comes from its unchanged text)
+    //-has been defined before it with the same signature
+    private static boolean isValid(CachedFunction cached, String name, Map<String, String> signatures) {
+
+        for(Map.Entry<String, String> dependency : cached.dependencies.entrySet()) {
+            if(!dependency.getKey().equals(name) && !dependency.getValue().equals(signatures.get(dependency.getKey()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    //collects the globals and functions referenced by some statements, with their signatures
+    private static void collect(List<? extends Ast.Statement> statements, Set<Environment.Variable> globals, Map<String, String> dependencies) {
+
+        for(Ast.Statement statement : statements) {
+            if(statement instanceof Ast.Statement.Expression) {
+                collect(((Ast.Statement.Expression) statement).getExpression(), globals, dependencies);
+            } else if(statement instanceof Ast.Statement.Declaration) {
+                ((Ast.Statement.Declaration) statement).getValue().ifPresent(value -> collect(value, globals, dependencies));
+            } else if(statement instanceof Ast.Statement.Assignment) {
+                collect(((Ast.Statement.Assignment) statement).getReceiver(), globals, dependencies);
+                collect(((Ast.Statement.Assignment) statement).getValue(), globals, dependencies);
+            } else if(statement instanceof Ast.Statement.If) {
+                collect(((Ast.Statement.If) statement).getCondition(), globals, dependencies);
+                collect(((Ast.Statement.If) statement).getThenStatements(), globals, dependencies);
+                collect(((Ast.Statement.If) statement).getElseStatements(), globals, dependencies);
+            } else if(statement instanceof Ast.Statement.Switch) {
+                collect(((Ast.Statement.Switch) statement).getCondition(), globals, dependencies);
+                collect(((Ast.Statement.Switch) statement).getCases(), globals, dependencies);
+            } else if(statement instanceof Ast.Statement.Case) {
+                ((Ast.Statement.Case) statement).getValue().ifPresent(value -> collect(value, globals, dependencies));
+                collect(((Ast.Statement.Case) statement).getStatements(), globals, dependencies);
+            } else if(statement instanceof Ast.Statement.While) {
+                collect(((Ast.Statement.While) statement).getCondition(), globals, dependencies);
+                collect(((Ast.Statement.While) statement).getStatements(), globals, dependencies);
+            } else if(statement instanceof Ast.Statement.Return) {
+                collect(((Ast.Statement.Return) statement).getValue(), globals, dependencies);
+            }
+        }
+    }
+
+    private static void collect(Ast.Expression expression, Set<Environment.Variable> globals, Map<String, String> dependencies) {
+
+        if(expression instanceof Ast.Expression.Group) {
+            collect(((Ast.Expression.Group) expression).getExpression(), globals, dependencies);
+        } else if(expression instanceof Ast.Expression.Binary) {
+            collect(((Ast.Expression.Binary) expression).getLeft(), globals, dependencies);
+            collect(((Ast.Expression.Binary) expression).getRight(), globals, dependencies);
+        } else if(expression instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) expression;
+            if(globals.contains(access.getVariable())) {
+                dependencies.put(key(access.getVariable()), signature(access.getVariable()));
+            }
+            access.getOffset().ifPresent(offset -> collect(offset, globals, dependencies));
+        } else if(expression instanceof Ast.Expression.Function) {
+            Ast.Expression.Function function = (Ast.Expression.Function) expression;
+            dependencies.put(key(function.getFunction()), signature(function.getFunction()));
+            for(Ast.Expression argument : function.getArguments()) {
+                collect(argument, globals, dependencies);
+            }
+        } else if(expression instanceof Ast.Expression.PlcList) {
+            for(Ast.Expression value : ((Ast.Expression.PlcList) expression).getValues()) {
+                collect(value, globals, dependencies);
+            }
+        }
+    }
+
+    private static String key(Environment.Variable variable) {
+        return variable.getName();
+    }
+
+    private static String key(Environment.Function function) {
+        return function.getName() + "/" + function.getArity();
+    }
+
+    private static String signature(Environment.Variable variable) {
+        return (variable.getMutable() ? "VAR " : "VAL ") + variable.getJvmName() + ": " + variable.getType().getName();
+    }
+
+    private static String signature(Environment.Function function) {
+        List<String> parameterTypes = new ArrayList<>();
+        for(Environment.Type type : function.getParameterTypes()) {
+            parameterTypes.add(type.getName());
+        }
+        return function.getJvmName() + "(" + String.join(", ", parameterTypes) + "): " + function.getReturnType().getName();
+    }
+
+}
@@ -1,10 +1,16 @@
 package plc.project;
 
+import java.io.PrintStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 
@@ -19,16 +25,49 @@ import java.util.Optional;
 
 
 //the visitor class is an abstract class that is implemented by the Interpreter class to allow for the implementation of the visitor pattern (double dispatch)
-public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
+//an interpreter is a session that owns the off heap lists it creates, closing it releases them
+public class Interpreter implements Ast.Visitor<Environment.PlcObject>, AutoCloseable {
+
+    //precision used for decimal exponentiation (BigDecimal.pow only accepts exponents up to 999999999)
+    static final MathContext POWER_CONTEXT = MathContext.DECIMAL128;
+    private static final BigInteger MAX_DECIMAL_EXPONENT = BigInteger.valueOf(999999999);
 
     //this scope variable is essentially a tracker that essentially allows for different variable definitions across scopes and allows for scope functionality
     private Scope scope = new Scope(null);
 
+    //the outer most scope of this interpreter, where functions are defined (function call sites cache their lookups against it)
+    private final Scope globals;
+
+    //the function every call site resolved to, kept by the interpreter and not in the tree, as any number of interpreters may run the same
+    //-tree (see ExecutionService), and a tree must not keep a finished interpreter (or its functions) reachable
+    private final Map<Ast.Expression.Function, CallSite> callSites = new IdentityHashMap<>();
+
+    //Integer and Decimal lists with at least this many elements are stored off heap, and released when the interpreter is closed
+    public static final int DEFAULT_OFF_HEAP_THRESHOLD = 1 << 20;
+    private int offHeapThreshold = DEFAULT_OFF_HEAP_THRESHOLD;
+    private final List<PlcArray> offHeapLists = new ArrayList<PlcArray>();
+
+    //records functions and statements when profiling, null (which is all the hot path checks) otherwise
+    private Profiler profiler = null;
+
+    //compiles the hot pure functions when set, null otherwise, and the tier of the function running (for counting its loops' back edges)
+    private TieredCompiler tieredCompiler = null;
+    private TieredCompiler.Tier tier = null;
+
+    //the function running, whose self tail calls are run as loops, null outside of a function
+    private Environment.Function function = null;
+
     //interpreter function that takes the outer most scope as the parameter and defines some automatically built in functions - print and logarithm
     public Interpreter(Scope parent) {
+        this(parent, System.out);
+    }
+
+    //interpreter whose print function writes to the given stream instead of standard out
+    public Interpreter(Scope parent, PrintStream out) {
         scope = new Scope(parent);
+        globals = scope;
         scope.defineFunction("print", 1, args -> {
-            System.out.println(args.get(0).getValue());
+            out.println(args.get(0).getValue());
             return Environment.NIL;
         });
 
@@ -57,6 +96,46 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
         return scope;
     }
 
+    //profiles everything this interpreter runs from now on, or stops profiling if null
+    public void setProfiler(Profiler profiler) {
+        this.profiler = profiler;
+    }
+
+    //compiles the functions defined from now on once they get hot (see TieredCompiler), or stops if null
+    //a compiled function runs its compiled code while nothing is profiled, as the profiler can only see the interpreter
+    public void setTieredCompiler(TieredCompiler tieredCompiler) {
+        this.tieredCompiler = tieredCompiler;
+    }
+
+    //sets the number of elements from which numeric lists are stored off heap
+    public void setOffHeapThreshold(int offHeapThreshold) {
+        this.offHeapThreshold = offHeapThreshold;
+    }
+
+    //releases every off heap list this interpreter created, using one of them afterwards throws
+    @Override
+    public void close() {
+        for(PlcArray list : offHeapLists) {
+            list.release();
+        }
+        offHeapLists.clear();
+    }
+
+    //dispatches to the visit of the node's type (double dispatch), timing the statement when profiling
+    @Override
+    public Environment.PlcObject visit(Ast ast) {
+        if(profiler != null && ast instanceof Ast.Statement) {
+            Profiler profiling = profiler;
+            profiling.enterStatement((Ast.Statement) ast);
+            try {
+                return Ast.Visitor.super.visit(ast);
+            } finally {
+                profiling.exitStatement();
+            }
+        }
+        return Ast.Visitor.super.visit(ast);
+    }
+
     //visits the source and evaluates/interprets everything according the grammar by visiting subsequent types
     //looks up the main function to make sure it is there otherwise it violates the grammar and will throw an error
     @Override
@@ -99,21 +178,56 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     //visits a function and evaluates/interprets everything according the grammar by visiting subsequent types
     //defines functions scope and defines the function within the scope
     //must define all parameters in the scope and when done get the parent scope (outer most scope typically)
+    //a self tail call (a RETURN of a call to the function itself) runs the body again with the call's arguments instead of calling,
+    //-so a function recursing through tail calls runs in a single Java frame whatever its depth
     @Override
     public Environment.PlcObject visit(Ast.Function ast) {
 
         Scope newScope = scope;
+        TieredCompiler.Tier functionTier = tieredCompiler == null ? null : tieredCompiler.define(ast);
+        Environment.Function[] self = new Environment.Function[1]; //the function being defined, which the lambda can't name
         scope.defineFunction(ast.getName(), ast.getParameters().size(), args -> {
 
-            Scope scopeCalled = scope;
-            scope = new Scope(newScope);
+            if(functionTier != null && profiler == null) {
+                Environment.PlcObject compiled = functionTier.invoke(args);
+                if(compiled != null) {
+                    return compiled;
+                }
+            }
 
-            for(int i = 0; i < args.size(); i++) {
-                scope.defineVariable(ast.getParameters().get(i), true, args.get(i));
+            Scope scopeCalled = scope;
+            TieredCompiler.Tier tierCalled = tier;
+            Environment.Function functionCalled = function;
+            tier = functionTier;
+            function = self[0];
+
+            Profiler profiling = profiler;
+            if(profiling != null) {
+                profiling.enterFunction(ast);
             }
+            Telemetry.InvokeEvent event = new Telemetry.InvokeEvent();
+            event.begin();
+            Metrics metrics = Telemetry.getMetrics();
+            long start = metrics == Metrics.NONE ? 0 : System.nanoTime();
                 try {
-                    for(Ast.Statement currentState : ast.getStatements()) {
-                        visit(currentState);
+                    List<Environment.PlcObject> arguments = args;
+                    while(true) {
+                        scope = new Scope(newScope);
+                        for(int i = 0; i < arguments.size(); i++) {
+                            scope.defineVariable(ast.getParameters().get(i), true, arguments.get(i));
+                        }
+
+                        try {
+                            for(Ast.Statement currentState : ast.getStatements()) {
+                                visit(currentState);
+                            }
+                            return Environment.NIL;
+                        } catch (TailCall e) {
+                            arguments = e.arguments;
+                            if(functionTier != null) {
+                                functionTier.backEdge(); //the loop a tail call becomes
+                            }
+                        }
                     }
 
                 } catch (Return e) {
@@ -121,9 +235,15 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
                 } finally {
                     scope = scopeCalled;
+                    tier = tierCalled;
+                    function = functionCalled;
+                    if(profiling != null) {
+                        profiling.exitFunction();
+                    }
+                    Telemetry.invoked(event, metrics, start, ast.getName());
                 }
-            return Environment.NIL;
         });
+        self[0] = scope.lookupFunction(ast.getName(), ast.getParameters().size());
 
         return Environment.NIL;
 
@@ -168,30 +288,32 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             throw new RuntimeException("Receiver is not assignable, not of type Ast.Expression.Access");
         }
 
-        boolean offsetPresent = ((Ast.Expression.Access)ast.getReceiver()).getOffset().isPresent();
-        if (offsetPresent) {
-            //get an Environment.Variable, getValue() then gets a PlcObject, then getValue() gets an Object
-            //Object can be type casted to a List<Object> since List<Object> extends Object
-            List<Object> toAssignTo = (List<Object>) scope.lookupVariable(((Ast.Expression.Access) ast.getReceiver()).getName()).getValue().getValue();
-            int offsetInt = ((BigInteger) visit(((Ast.Expression.Access)ast.getReceiver()).getOffset().get()).getValue()).intValue();
+        Ast.Expression.Access receiver = (Ast.Expression.Access) ast.getReceiver();
+        if (receiver.getOffset().isPresent()) {
+            //the variable is resolved once and the list it holds is mutated in place, the variable keeps the same list value
+            Environment.Variable variable = scope.lookupVariable(receiver.getName());
+            List<Object> toAssignTo = (List<Object>) variable.getValue().getValue();
+            int offsetInt = ((BigInteger) visit(receiver.getOffset().get()).getValue()).intValue();
 
             if(offsetInt < 0 || toAssignTo.size() - 1 < offsetInt) {
                 throw new RuntimeException("Offset out of bounds");
             }
-            if(!scope.lookupVariable(((Ast.Expression.Access) ast.getReceiver()).getName()).getMutable()) {
+            if(!variable.getMutable()) {
                 throw new RuntimeException("Receiver is immutable, cannot assign");
             }
 
-            toAssignTo.set(offsetInt, visit(ast.getValue()).getValue());
-            Environment.Variable recevierNameVar = scope.lookupVariable(((Ast.Expression.Access)ast.getReceiver()).getName());
-            recevierNameVar.setValue(Environment.create(toAssignTo));
+            if(toAssignTo instanceof PlcArray) {
+                ((PlcArray) toAssignTo).put(offsetInt, visit(ast.getValue()).getValue());
+            } else {
+                toAssignTo.set(offsetInt, visit(ast.getValue()).getValue());
+            }
 
         } else {
-            if(!scope.lookupVariable(((Ast.Expression.Access) ast.getReceiver()).getName()).getMutable()) {
+            Environment.Variable recevierNameVar = scope.lookupVariable(receiver.getName());
+            if(!recevierNameVar.getMutable()) {
                 throw new RuntimeException("Receiver is immutable, cannot assign");
             }
 
-            Environment.Variable recevierNameVar = scope.lookupVariable(((Ast.Expression.Access)ast.getReceiver()).getName());
             recevierNameVar.setValue(visit(ast.getValue()));
         }
 
@@ -238,23 +360,36 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Statement.Switch ast) {
         Ast.Statement.Case defaultCase = ast.getCases().get(ast.getCases().size() - 1);
+        Object theCondition = visit(ast.getCondition()).getValue(); //evaluated once, not once per case
+
+        Ast.Statement.Switch.JumpTable table = ast.getJumpTable();
+        if(table == null) {
+            table = jumpTable(ast);
+            ast.setJumpTable(table);
+        }
 
-        for(Ast.Statement.Case cases : ast.getCases()) {
+        if(table != Ast.Statement.Switch.JumpTable.LINEAR) {
+            Ast.Statement.Case found = table.lookup(theCondition);
+            if(found != null) {
+                defaultCase = found;
+            }
+        } else {
+            for(Ast.Statement.Case cases : ast.getCases()) {
 
-            boolean isCaseVal = cases.getValue().isPresent();
+                boolean isCaseVal = cases.getValue().isPresent();
 
-            if(isCaseVal) {
-                Object caseVal = visit(cases.getValue().get()).getValue();
-                Object theCondition = visit(ast.getCondition()).getValue();
+                if(isCaseVal) {
+                    Object caseVal = visit(cases.getValue().get()).getValue();
 
-                if(caseVal.equals(theCondition)) {
+                    if(caseVal.equals(theCondition)) {
+
+                        defaultCase = cases;
+                        break;
+                    }
 
-                    defaultCase = cases;
-                    break;
                 }
 
             }
-
         }
 
         //need a new scope for each case call since it contains its own functionality
@@ -270,6 +405,22 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     }
 
+    //builds the jump table of a switch whose cases are all literals (integers, characters, or any other constant), LINEAR otherwise
+    private Ast.Statement.Switch.JumpTable jumpTable(Ast.Statement.Switch ast) {
+
+        Map<Object, Ast.Statement.Case> cases = new HashMap<Object, Ast.Statement.Case>();
+        for(Ast.Statement.Case statement : ast.getCases()) {
+            if(statement.getValue().isPresent()) {
+                if(!(statement.getValue().get() instanceof Ast.Expression.Literal)) {
+                    return Ast.Statement.Switch.JumpTable.LINEAR;
+                }
+                cases.putIfAbsent(visit(statement.getValue().get()).getValue(), statement);
+            }
+        }
+
+        return new Ast.Statement.Switch.JumpTable(cases);
+    }
+
     //visits a case statement and evaluates/interprets everything according the grammar by visiting subsequent types
     @Override
     public Environment.PlcObject visit(Ast.Statement.Case ast) {
@@ -302,6 +453,9 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
                 scope = scope.getParent();
 
             }
+            if(tier != null) {
+                tier.backEdge();
+            }
             checkStatements = requireType(Boolean.class, visit(ast.getCondition()));
         }
 
@@ -309,9 +463,13 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     }
 
     //visits return statement and throws a Return with the value to be returned in the parameter (functionality extends that of runtime exception at end of file)
+    //a return of a call to the function running is a self tail call, which throws the arguments to the function's loop instead
     @Override
     public Environment.PlcObject visit(Ast.Statement.Return ast) {
 
+        if(function != null && ast.getValue() instanceof Ast.Expression.Function && isSelfCall((Ast.Expression.Function) ast.getValue())) {
+            throw new TailCall(arguments((Ast.Expression.Function) ast.getValue()));
+        }
         throw new Return(visit(ast.getValue()));
 
     }
@@ -340,6 +498,12 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     @Override
     public Environment.PlcObject visit(Ast.Expression.Binary ast) {
 
+        //a binary specialized by the Specializer already knows the types of its operands, so it skips the checks below
+        Operation operation = ast.getOperation();
+        if(operation != null) {
+            return visit(operation, ast);
+        }
+
         if(ast.getOperator().equals("&&")) {
             Environment.PlcObject left = visit(ast.getLeft());
             Boolean isLeft = requireType(Boolean.class, left);
@@ -497,69 +661,40 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
             Environment.PlcObject left = visit(ast.getLeft());
             Environment.PlcObject right = visit(ast.getRight());
 
-            BigInteger Z = new BigInteger("0");
-
             if(!(right.getValue() instanceof BigInteger)) {
                 throw new RuntimeException("Exponent must be a BigInteger");
             }
 
-            //values of resultant BigInteger and BigDecimal might be bigger than ranges for int and double so must be done manually with for loop
+            //uses binary exponentiation (BigInteger.pow / BigDecimal.pow) instead of multiplying once per unit of exponent
             if(left.getValue() instanceof BigDecimal) {
-
-                //power is zero, return 1
-                if(((BigInteger)right.getValue()).equals(Z)) {
-                    return Environment.create(BigDecimal.ONE);
-                }
-
-                BigDecimal base = (BigDecimal) left.getValue();
-                BigDecimal returnVal = BigDecimal.ONE;
-
-                //power is negative case
-                if(((BigInteger)right.getValue()).compareTo(Z) < 0) {
-                    BigInteger newPower = ((BigInteger)right.getValue()).multiply(new BigInteger("-1")); //change power to positive for loop
-                    for(BigInteger i = new BigInteger("0"); i.compareTo(newPower) < 0; i = i.add(new BigInteger("1"))) {
-                        returnVal = returnVal.divide(base, RoundingMode.HALF_EVEN); //divide instead of multiply bc of negative power
-                    }
-                    return Environment.create(returnVal);
-                } else { //power is positive case (power zero is taken care of already)
-                    for(BigInteger i = new BigInteger("0"); i.compareTo((BigInteger)right.getValue()) < 0; i = i.add(new BigInteger("1"))) {
-                        returnVal = returnVal.multiply(base);
-                    }
-                    return Environment.create(returnVal);
-                }
+                return Environment.create(power((BigDecimal) left.getValue(), (BigInteger) right.getValue()));
 
             } else if(left.getValue() instanceof BigInteger) {
-
-                //power is zero, return 1
-                if(((BigInteger)right.getValue()).equals(Z)) {
-                    return Environment.create(new BigInteger("1"));
-                }
-
-                BigInteger base = (BigInteger) left.getValue();
-                BigInteger returnVal = new BigInteger("1");
-
-                //power is negative case
-                if(((BigInteger)right.getValue()).compareTo(Z) < 0) {
-                    BigInteger newPower = ((BigInteger)right.getValue()).multiply(new BigInteger("-1")); //change power to positive for loop
-                    for(BigInteger i = new BigInteger("0"); i.compareTo(newPower) < 0; i = i.add(new BigInteger("1"))) {
-                        returnVal = returnVal.divide(base); //divide instead of multiply bc of negative power (since int, should end up being zero)
-                    }
-                    return Environment.create(returnVal);
-                } else { //power is positive case (power zero is taken care of already)
-                    for(BigInteger i = new BigInteger("0"); i.compareTo((BigInteger)right.getValue()) < 0; i = i.add(new BigInteger("1"))) {
-                        returnVal = returnVal.multiply(base);
-                    }
-                    return Environment.create(returnVal);
-                }
+                return Environment.create(power((BigInteger) left.getValue(), (BigInteger) right.getValue()));
 
             } else { //different data types therefore incompatible
-                throw new RuntimeException("Incompatible data types in multiplication");
+                throw new RuntimeException("Incompatible data types in exponentiation");
             }
         } else {
             throw new RuntimeException("No Valid Operator");
         }
     }
 
+    //evaluates a binary expression through its specialized operation (only && and || need the right operand to be short circuited)
+    private Environment.PlcObject visit(Operation operation, Ast.Expression.Binary ast) {
+
+        Object left = visit(ast.getLeft()).getValue();
+
+        if(operation == Operation.AND && !((Boolean) left)) {
+            return Environment.create(false);
+        } else if(operation == Operation.OR && (Boolean) left) {
+            return Environment.create(true);
+        }
+
+        return Environment.create(operation.apply(left, visit(ast.getRight()).getValue()));
+
+    }
+
     //visits an access expression and evaluates/interprets everything according the grammar by visiting subsequent types
     //must lookup variable in the current scope to see if it accessable
     @Override
@@ -590,17 +725,76 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
     //visits a function call and evaluates/interprets everything according the grammar by visiting subsequent types
     //must lookup function in scope to see if the function has been defined and can even be called
+    //small arities are passed as fixed size immutable lists so no intermediate ArrayList is built
     @Override
     public Environment.PlcObject visit(Ast.Expression.Function ast) {
 
-        List<Environment.PlcObject> arguments = new ArrayList<Environment.PlcObject>();
+        List<Environment.PlcObject> arguments = arguments(ast);
+        return lookupFunction(ast).invoke(arguments);
+
+    }
 
-        for(Ast.Expression exp : ast.getArguments()) {
-            arguments.add(visit(exp));
+    //whether a call is to the function running (the name is compared first, so other calls are never resolved early)
+    private boolean isSelfCall(Ast.Expression.Function ast) {
+        return ast.getName().equals(function.getName()) && ast.getArguments().size() == function.getArity() && lookupFunction(ast) == function;
+    }
 
+    //evaluates the arguments of a call in order
+    private List<Environment.PlcObject> arguments(Ast.Expression.Function ast) {
+
+        List<Ast.Expression> argumentExprs = ast.getArguments();
+        List<Environment.PlcObject> arguments;
+
+        switch(argumentExprs.size()) {
+            case 0:
+                arguments = Collections.emptyList();
+                break;
+            case 1:
+                arguments = List.of(visit(argumentExprs.get(0)));
+                break;
+            case 2:
+                Environment.PlcObject first = visit(argumentExprs.get(0));
+                arguments = List.of(first, visit(argumentExprs.get(1)));
+                break;
+            default:
+                arguments = new ArrayList<Environment.PlcObject>(argumentExprs.size());
+                for(Ast.Expression exp : argumentExprs) {
+                    arguments.add(visit(exp));
+                }
         }
 
-        return scope.lookupFunction(ast.getName(), arguments.size()).invoke(arguments);
+        return arguments;
+
+    }
+
+    //resolves the function of a call site, reusing the call site's cached function while no function has been defined since it was resolved
+    //functions are only ever defined in the outer most scopes (never in the local scope of a block), so the result does not depend on the current local scope
+    private Environment.Function lookupFunction(Ast.Expression.Function ast) {
+
+        int version = globals.getFunctionsVersion();
+        CallSite callSite = callSites.get(ast);
+
+        if(callSite != null && callSite.version == version) {
+            return callSite.function;
+        }
+
+        Environment.Function function = scope.lookupFunction(ast.getName(), ast.getArguments().size());
+        callSites.put(ast, new CallSite(version, function));
+
+        return function;
+
+    }
+
+    //the function a call site resolved to, and the definition version of the globals it was resolved in
+    private static final class CallSite {
+
+        private final int version;
+        private final Environment.Function function;
+
+        private CallSite(int version, Environment.Function function) {
+            this.version = version;
+            this.function = function;
+        }
 
     }
 
@@ -609,16 +803,75 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
     public Environment.PlcObject visit(Ast.Expression.PlcList ast) {
 
         List<Ast.Expression> listz = ast.getValues();
+        if(listz.isEmpty()) {
+            return Environment.create(PlcArray.allocate(elementType(ast), 0, false));
+        }
+
+        //the list is allocated once the first element is known (an unanalyzed tree infers the element type from it),
+        //-and every element is stored as soon as it is evaluated
+        Object first = visit(listz.get(0)).getValue();
+        Environment.Type elementType = elementType(ast);
+        PlcArray list = PlcArray.allocate(elementType != null ? elementType : PlcArray.typeOf(first), listz.size(), listz.size() >= offHeapThreshold);
+        if(list.isOffHeap()) {
+            offHeapLists.add(list);
+        }
+
+        list.put(0, first);
+        for(int i = 1; i < listz.size(); i++) {
+            list.put(i, visit(listz.get(i)).getValue());
+        }
+
+        return Environment.create(list);
 
-        List<Object> returnList = new ArrayList<Object>();
+    }
+
+    //the element type the analyzer resolved for a list, or null for a tree that wasn't analyzed (the list then infers it from its values)
+    private static Environment.Type elementType(Ast.Expression.PlcList ast) {
+        try {
+            return ast.getType();
+        } catch(IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Helper functions for exponentiation.
+     */
 
-        for(Ast.Expression iter: listz) {
-            returnList.add(visit(iter).getValue());
+    //integer exponentiation, a negative power is 1 / base^n using integer division (so it truncates towards zero like the division operator)
+    //bases of 0, 1 and -1 are handled directly so that exponents too large for an int still have a defined result
+    static BigInteger power(BigInteger base, BigInteger exponent) {
+        if(exponent.signum() < 0) {
+            if(base.signum() == 0) {
+                throw new RuntimeException("Cannot divide by zero in BigInteger");
+            } else if(base.abs().equals(BigInteger.ONE)) {
+                return exponent.testBit(0) ? base : BigInteger.ONE;
+            }
+            return BigInteger.ZERO;
+        }
 
+        if(exponent.bitLength() >= Integer.SIZE) {
+            if(base.signum() == 0 || base.equals(BigInteger.ONE)) {
+                return base;
+            } else if(base.equals(BigInteger.ONE.negate())) {
+                return exponent.testBit(0) ? base : BigInteger.ONE;
+            }
+            throw new RuntimeException("Exponent is too large");
         }
 
-        return Environment.create(returnList);
+        return base.pow(exponent.intValue());
+    }
+
+    //decimal exponentiation is rounded to POWER_CONTEXT, which also gives negative powers a well defined precision
+    static BigDecimal power(BigDecimal base, BigInteger exponent) {
+        if(exponent.abs().compareTo(MAX_DECIMAL_EXPONENT) > 0) {
+            throw new RuntimeException("Exponent is too large");
+        }
+        if(exponent.signum() < 0 && base.signum() == 0) {
+            throw new RuntimeException("Cannot divide by zero in BigDecimal");
+        }
 
+        return base.pow(exponent.intValue(), POWER_CONTEXT);
     }
 
     /**
@@ -645,10 +898,26 @@ public class Interpreter implements Ast.Visitor<Environment.PlcObject> {
 
         private final Environment.PlcObject value;
 
+        //no stack trace is captured since a Return is only used for control flow, which would otherwise dominate the cost of every call
         private Return(Environment.PlcObject value) {
+            super(null, null, false, false);
             this.value = value;
         }
 
     }
 
+    //a self tail call goes back to the function it returns from with its arguments, the same way a Return does with its value
+    private static final class TailCall extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Environment.PlcObject> arguments;
+
+        private TailCall(List<Environment.PlcObject> arguments) {
+            super(null, null, false, false);
+            this.arguments = arguments;
+        }
+
+    }
+
 }
@@ -19,17 +19,28 @@ public final class Lexer {
     //otherwise calls the lex() function to take care of non-white space tokens
     public List<Token> lex() {
 
+        Telemetry.LexEvent event = new Telemetry.LexEvent();
+        event.begin();
+        long start = System.nanoTime();
+
         List<Token> tokenList = new ArrayList<Token>();
-        while(chars.has(0)) {
+        boolean failed = true;
+        try {
+            while(chars.has(0)) {
 
-            if(peek("[ \n\r\t\b]")) {
-                chars.advance();
-                chars.skip();
-            } else {
-                tokenList.add(lexToken());
+                if(peek("[ \n\r\t\b]")) {
+                    chars.advance();
+                    chars.skip();
+                } else {
+                    tokenList.add(lexToken());
+                }
             }
+
+            failed = false;
+            return tokenList;
+        } finally {
+            Telemetry.lexed(event, start, tokenList, failed);
         }
-        return tokenList;
     }
 
     //calls non-white space token lexing by peeking ahead to what the particular token should start with
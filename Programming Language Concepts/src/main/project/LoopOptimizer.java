@@ -0,0 +1,568 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+//the loop optimizer is an AST to AST pass that runs after the analyzer (and optionally the Optimizer) and works on WHILE loops
+//-loop invariant code motion: expressions inside a loop that compute the same value on every iteration are computed once
+//-into a temporary declared right before the loop
+//-common subexpression elimination: an expression that is computed more than once in the block of a loop (with none of its
+//-variables being assigned in between) is computed once into a temporary declared before its first use
+
+//only expressions that can't have side effects or throw are moved: arithmetic (+, -, *), comparisons, and logical operators over
+//-literals and variables that are always initialized. Division and ^ can throw, list accesses can be out of bounds, and a function call
+//-may have side effects (print is the only function the analyzer defines, so no call is treated as pure)
+//temporaries are named _licm0, _cse0, ... which can't clash with the program's own names since identifiers must start with a letter or @
+public final class LoopOptimizer {
+
+    private final Set<Environment.Variable> globals = new HashSet<>(); //can be changed by any function call
+    private final Set<Environment.Variable> uninitialized = new HashSet<>(); //may hold NIL, so operators on them could throw
+    private int temporaries = 0;
+
+    public Ast.Source visit(Ast.Source ast) {
+
+        for(Ast.Global global : ast.getGlobals()) {
+            globals.add(global.getVariable());
+            if(!global.getValue().isPresent()) {
+                uninitialized.add(global.getVariable());
+            }
+        }
+
+        List<Ast.Function> functions = new ArrayList<Ast.Function>();
+        for(Ast.Function function : ast.getFunctions()) {
+            functions.add(visit(function));
+        }
+
+        return new Ast.Source(ast.getGlobals(), functions);
+    }
+
+    public Ast.Function visit(Ast.Function ast) {
+
+        collectUninitialized(ast.getStatements());
+
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), optimize(ast.getStatements()));
+        function.setFunction(ast.getFunction());
+        function.setParameterVariables(ast.getParameterVariables());
+        function.setIndex(ast.getIndex());
+
+        return function;
+    }
+
+    //optimizes every loop in a block (inner loops first), placing the invariants hoisted out of a loop right before it
+    private List<Ast.Statement> optimize(List<Ast.Statement> statements) {
+
+        List<Ast.Statement> optimized = new ArrayList<Ast.Statement>();
+
+        for(Ast.Statement statement : statements) {
+            if(statement instanceof Ast.Statement.While) {
+                Ast.Statement.While loop = (Ast.Statement.While) statement;
+                loop = hoistInvariants(new Ast.Statement.While(loop.getCondition(), optimize(loop.getStatements())), optimized);
+                loop = new Ast.Statement.While(loop.getCondition(), eliminateCommon(loop.getStatements()));
+                loop.setIndex(statement.getIndex());
+                optimized.add(loop);
+            } else if(statement instanceof Ast.Statement.If) {
+                Ast.Statement.If ifStatement = (Ast.Statement.If) statement;
+                Ast.Statement.If result = new Ast.Statement.If(ifStatement.getCondition(), optimize(ifStatement.getThenStatements()), optimize(ifStatement.getElseStatements()));
+                result.setIndex(statement.getIndex());
+                optimized.add(result);
+            } else if(statement instanceof Ast.Statement.Switch) {
+                List<Ast.Statement.Case> cases = new ArrayList<Ast.Statement.Case>();
+                for(Ast.Statement.Case caseStatement : ((Ast.Statement.Switch) statement).getCases()) {
+                    cases.add(new Ast.Statement.Case(caseStatement.getValue(), optimize(caseStatement.getStatements())));
+                }
+                Ast.Statement.Switch result = new Ast.Statement.Switch(((Ast.Statement.Switch) statement).getCondition(), cases);
+                result.setIndex(statement.getIndex());
+                optimized.add(result);
+            } else {
+                optimized.add(statement);
+            }
+        }
+
+        return optimized;
+    }
+
+    /**
+     * Loop invariant code motion.
+     */
+
+    //moves every invariant expression of the loop (largest first) into a temporary declared in the enclosing block, returning the rewritten loop
+    private Ast.Statement.While hoistInvariants(Ast.Statement.While loop, List<Ast.Statement> enclosing) {
+
+        Set<Environment.Variable> changed = new HashSet<>();
+        collectChanged(loop, changed);
+        boolean calls = containsCall(loop);
+
+        List<Ast.Expression> invariants = new ArrayList<Ast.Expression>();
+        collectInvariants(loop.getCondition(), changed, calls, invariants);
+        for(Ast.Expression expression : expressions(loop.getStatements())) {
+            collectInvariants(expression, changed, calls, invariants);
+        }
+
+        Ast.Statement result = loop;
+        for(Ast.Expression invariant : invariants) {
+            Ast.Expression.Access temporary = declare("_licm", invariant, enclosing);
+            result = replace(result, invariant, temporary);
+        }
+
+        return (Ast.Statement.While) result;
+    }
+
+    //collects the largest subexpressions that are worth hoisting and whose value can't change between iterations
+    private void collectInvariants(Ast.Expression expression, Set<Environment.Variable> changed, boolean calls, List<Ast.Expression> invariants) {
+
+        if(isCandidate(expression) && isInvariant(expression, changed, calls)) {
+            for(Ast.Expression invariant : invariants) {
+                if(same(invariant, expression)) {
+                    return;
+                }
+            }
+            invariants.add(expression);
+            return;
+        }
+
+        for(Ast.Expression child : children(expression)) {
+            collectInvariants(child, changed, calls, invariants);
+        }
+    }
+
+    private boolean isInvariant(Ast.Expression expression, Set<Environment.Variable> changed, boolean calls) {
+
+        if(expression instanceof Ast.Expression.Access) {
+            Environment.Variable variable = ((Ast.Expression.Access) expression).getVariable();
+            return !changed.contains(variable) && !(calls && globals.contains(variable));
+        }
+        for(Ast.Expression child : children(expression)) {
+            if(!isInvariant(child, changed, calls)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Common subexpression elimination.
+     */
+
+    //repeatedly takes the largest expression computed at least twice in the block without its variables changing in between
+    //-and replaces it with a temporary declared before its first use
+    private List<Ast.Statement> eliminateCommon(List<Ast.Statement> statements) {
+
+        List<Ast.Statement> block = new ArrayList<Ast.Statement>(statements);
+
+        while(true) {
+            Ast.Expression best = null;
+            int bestStart = -1;
+            int bestEnd = -1;
+
+            for(int start = 0; start < block.size(); start++) {
+                if(!isSimple(block.get(start))) {
+                    continue;
+                }
+                for(Ast.Expression candidate : candidates(block.get(start))) {
+                    if(globals.stream().anyMatch(global -> references(candidate, global)) || (best != null && size(candidate) <= size(best))) {
+                        continue;
+                    }
+                    int end = rangeEnd(block, start, candidate);
+                    if(occurrences(block.subList(start, end + 1), candidate) >= 2) {
+                        best = candidate;
+                        bestStart = start;
+                        bestEnd = end;
+                    }
+                }
+            }
+
+            if(best == null) {
+                return block;
+            }
+
+            List<Ast.Statement> rewritten = new ArrayList<Ast.Statement>(block.subList(0, bestStart));
+            Ast.Expression.Access temporary = declare("_cse", best, rewritten);
+            for(int i = bestStart; i < block.size(); i++) {
+                rewritten.add(i <= bestEnd ? replace(block.get(i), best, temporary) : block.get(i));
+            }
+            block = rewritten;
+        }
+    }
+
+    //returns the index of the last statement (from start) in which the candidate still has the value computed at start
+    //-an assignment to one of its variables still uses the old value on its right hand side, so it is included but ends the range
+    //-an IF/WHILE/SWITCH assigning one of its variables ends the range before it
+    private int rangeEnd(List<Ast.Statement> block, int start, Ast.Expression candidate) {
+
+        for(int i = start; i < block.size(); i++) {
+            Set<Environment.Variable> changed = new HashSet<>();
+            collectChanged(block.get(i), changed);
+            for(Environment.Variable variable : changed) {
+                if(references(candidate, variable)) {
+                    return isSimple(block.get(i)) ? i : i - 1;
+                }
+            }
+        }
+
+        return block.size() - 1;
+    }
+
+    private int occurrences(List<Ast.Statement> statements, Ast.Expression candidate) {
+
+        int count = 0;
+        for(Ast.Expression expression : expressions(statements)) {
+            count += occurrences(expression, candidate);
+        }
+
+        return count;
+    }
+
+    private int occurrences(Ast.Expression expression, Ast.Expression candidate) {
+
+        if(same(expression, candidate)) {
+            return 1;
+        }
+        int count = 0;
+        for(Ast.Expression child : children(expression)) {
+            count += occurrences(child, candidate);
+        }
+
+        return count;
+    }
+
+    //all subexpressions of a simple statement that could be computed into a temporary
+    private List<Ast.Expression> candidates(Ast.Statement statement) {
+
+        List<Ast.Expression> candidates = new ArrayList<Ast.Expression>();
+        for(Ast.Expression expression : expressions(List.of(statement))) {
+            collectCandidates(expression, candidates);
+        }
+
+        return candidates;
+    }
+
+    private void collectCandidates(Ast.Expression expression, List<Ast.Expression> candidates) {
+
+        if(isCandidate(expression)) {
+            candidates.add(expression);
+        }
+        for(Ast.Expression child : children(expression)) {
+            collectCandidates(child, candidates);
+        }
+    }
+
+    /**
+     * Helpers shared by both optimizations.
+     */
+
+    //an expression worth moving is a binary (possibly grouped) built only from operators that can't throw, literals, and initialized variables
+    private boolean isCandidate(Ast.Expression expression) {
+
+        Ast.Expression inner = expression;
+        while(inner instanceof Ast.Expression.Group) {
+            inner = ((Ast.Expression.Group) inner).getExpression();
+        }
+
+        return inner instanceof Ast.Expression.Binary && isSafe(inner);
+    }
+
+    private boolean isSafe(Ast.Expression expression) {
+
+        if(expression instanceof Ast.Expression.Literal) {
+            return true;
+        } else if(expression instanceof Ast.Expression.Group) {
+            return isSafe(((Ast.Expression.Group) expression).getExpression());
+        } else if(expression instanceof Ast.Expression.Access) {
+            Ast.Expression.Access access = (Ast.Expression.Access) expression;
+            return !access.getOffset().isPresent() && !uninitialized.contains(access.getVariable());
+        } else if(expression instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary binary = (Ast.Expression.Binary) expression;
+            switch(binary.getOperator()) {
+                case "/":
+                case "^":
+                    return false;
+                default:
+                    return isSafe(binary.getLeft()) && isSafe(binary.getRight());
+            }
+        }
+
+        return false;
+    }
+
+    //declares a temporary holding the expression at the end of the given block and returns an access to it
+    private Ast.Expression.Access declare(String prefix, Ast.Expression expression, List<Ast.Statement> block) {
+
+        String name = prefix + temporaries++;
+        Environment.Variable variable = new Environment.Variable(name, name, expression.getType(), true, Environment.NIL);
+
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(name, Optional.of(expression.getType().getName()), Optional.of(expression));
+        declaration.setVariable(variable);
+        block.add(declaration);
+
+        Ast.Expression.Access access = new Ast.Expression.Access(Optional.empty(), name);
+        access.setVariable(variable);
+
+        return access;
+    }
+
+    //two expressions are the same when they have the same structure and access the very same variables (not just variables with the same name)
+    private static boolean same(Ast.Expression left, Ast.Expression right) {
+
+        if(left instanceof Ast.Expression.Literal && right instanceof Ast.Expression.Literal) {
+            Object leftLiteral = ((Ast.Expression.Literal) left).getLiteral();
+            Object rightLiteral = ((Ast.Expression.Literal) right).getLiteral();
+            return leftLiteral == null ? rightLiteral == null : leftLiteral.equals(rightLiteral);
+        } else if(left instanceof Ast.Expression.Group && right instanceof Ast.Expression.Group) {
+            return same(((Ast.Expression.Group) left).getExpression(), ((Ast.Expression.Group) right).getExpression());
+        } else if(left instanceof Ast.Expression.Binary && right instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary leftBinary = (Ast.Expression.Binary) left;
+            Ast.Expression.Binary rightBinary = (Ast.Expression.Binary) right;
+            return leftBinary.getOperator().equals(rightBinary.getOperator()) && same(leftBinary.getLeft(), rightBinary.getLeft()) && same(leftBinary.getRight(), rightBinary.getRight());
+        } else if(left instanceof Ast.Expression.Access && right instanceof Ast.Expression.Access) {
+            Ast.Expression.Access leftAccess = (Ast.Expression.Access) left;
+            Ast.Expression.Access rightAccess = (Ast.Expression.Access) right;
+            return !leftAccess.getOffset().isPresent() && !rightAccess.getOffset().isPresent() && leftAccess.getVariable() == rightAccess.getVariable();
+        }
+
+        return false;
+    }
+
+    private static boolean references(Ast.Expression expression, Environment.Variable variable) {
+
+        if(expression instanceof Ast.Expression.Access && ((Ast.Expression.Access) expression).getVariable() == variable) {
+            return true;
+        }
+        for(Ast.Expression child : children(expression)) {
+            if(references(child, variable)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static int size(Ast.Expression expression) {
+
+        int size = 1;
+        for(Ast.Expression child : children(expression)) {
+            size += size(child);
+        }
+
+        return size;
+    }
+
+    private static boolean isSimple(Ast.Statement statement) {
+        return !(statement instanceof Ast.Statement.If || statement instanceof Ast.Statement.While || statement instanceof Ast.Statement.Switch);
+    }
+
+    //collects the variables a statement (or any block nested in it) assigns or declares
+    private static void collectChanged(Ast.Statement statement, Set<Environment.Variable> changed) {
+
+        if(statement instanceof Ast.Statement.Declaration) {
+            changed.add(((Ast.Statement.Declaration) statement).getVariable());
+        } else if(statement instanceof Ast.Statement.Assignment) {
+            changed.add(((Ast.Expression.Access) ((Ast.Statement.Assignment) statement).getReceiver()).getVariable());
+        }
+        for(Ast.Statement child : blocks(statement)) {
+            collectChanged(child, changed);
+        }
+    }
+
+    //collects the variables declared without a value (which hold NIL until they are assigned)
+    private void collectUninitialized(List<Ast.Statement> statements) {
+
+        for(Ast.Statement statement : statements) {
+            if(statement instanceof Ast.Statement.Declaration && !((Ast.Statement.Declaration) statement).getValue().isPresent()) {
+                uninitialized.add(((Ast.Statement.Declaration) statement).getVariable());
+            }
+            collectUninitialized(blocks(statement));
+        }
+    }
+
+    private boolean containsCall(Ast.Statement statement) {
+
+        for(Ast.Expression expression : expressions(List.of(statement))) {
+            if(containsCall(expression)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean containsCall(Ast.Expression expression) {
+
+        if(expression instanceof Ast.Expression.Function) {
+            return true;
+        }
+        for(Ast.Expression child : children(expression)) {
+            if(containsCall(child)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    //the statements nested directly inside a statement
+    private static List<Ast.Statement> blocks(Ast.Statement statement) {
+
+        List<Ast.Statement> statements = new ArrayList<Ast.Statement>();
+        if(statement instanceof Ast.Statement.If) {
+            statements.addAll(((Ast.Statement.If) statement).getThenStatements());
+            statements.addAll(((Ast.Statement.If) statement).getElseStatements());
+        } else if(statement instanceof Ast.Statement.While) {
+            statements.addAll(((Ast.Statement.While) statement).getStatements());
+        } else if(statement instanceof Ast.Statement.Switch) {
+            statements.addAll(((Ast.Statement.Switch) statement).getCases());
+        } else if(statement instanceof Ast.Statement.Case) {
+            statements.addAll(((Ast.Statement.Case) statement).getStatements());
+        }
+
+        return statements;
+    }
+
+    //the top level expressions of some statements and of every statement nested inside them
+    private static List<Ast.Expression> expressions(List<? extends Ast.Statement> statements) {
+
+        List<Ast.Expression> expressions = new ArrayList<Ast.Expression>();
+        for(Ast.Statement statement : statements) {
+            if(statement instanceof Ast.Statement.Expression) {
+                expressions.add(((Ast.Statement.Expression) statement).getExpression());
+            } else if(statement instanceof Ast.Statement.Declaration) {
+                ((Ast.Statement.Declaration) statement).getValue().ifPresent(expressions::add);
+            } else if(statement instanceof Ast.Statement.Assignment) {
+                expressions.add(((Ast.Statement.Assignment) statement).getReceiver());
+                expressions.add(((Ast.Statement.Assignment) statement).getValue());
+            } else if(statement instanceof Ast.Statement.Return) {
+                expressions.add(((Ast.Statement.Return) statement).getValue());
+            } else if(statement instanceof Ast.Statement.If) {
+                expressions.add(((Ast.Statement.If) statement).getCondition());
+            } else if(statement instanceof Ast.Statement.While) {
+                expressions.add(((Ast.Statement.While) statement).getCondition());
+            } else if(statement instanceof Ast.Statement.Switch) {
+                expressions.add(((Ast.Statement.Switch) statement).getCondition());
+            } else if(statement instanceof Ast.Statement.Case) {
+                ((Ast.Statement.Case) statement).getValue().ifPresent(expressions::add);
+            }
+            expressions.addAll(expressions(blocks(statement)));
+        }
+
+        return expressions;
+    }
+
+    private static List<Ast.Expression> children(Ast.Expression expression) {
+
+        List<Ast.Expression> children = new ArrayList<Ast.Expression>();
+        if(expression instanceof Ast.Expression.Group) {
+            children.add(((Ast.Expression.Group) expression).getExpression());
+        } else if(expression instanceof Ast.Expression.Binary) {
+            children.add(((Ast.Expression.Binary) expression).getLeft());
+            children.add(((Ast.Expression.Binary) expression).getRight());
+        } else if(expression instanceof Ast.Expression.Access) {
+            ((Ast.Expression.Access) expression).getOffset().ifPresent(children::add);
+        } else if(expression instanceof Ast.Expression.Function) {
+            children.addAll(((Ast.Expression.Function) expression).getArguments());
+        } else if(expression instanceof Ast.Expression.PlcList) {
+            children.addAll(((Ast.Expression.PlcList) expression).getValues());
+        }
+
+        return children;
+    }
+
+    /**
+     * Rewriting, every node on the path to a replaced expression is copied along with what the analyzer set on it.
+     */
+
+    private static Ast.Statement replace(Ast.Statement statement, Ast.Expression target, Ast.Expression replacement) {
+
+        Ast.Statement result = rebuild(statement, target, replacement);
+        result.setIndex(statement.getIndex());
+
+        return result;
+    }
+
+    private static Ast.Statement rebuild(Ast.Statement statement, Ast.Expression target, Ast.Expression replacement) {
+
+        if(statement instanceof Ast.Statement.Expression) {
+            return new Ast.Statement.Expression(replace(((Ast.Statement.Expression) statement).getExpression(), target, replacement));
+        } else if(statement instanceof Ast.Statement.Declaration) {
+            Ast.Statement.Declaration ast = (Ast.Statement.Declaration) statement;
+            Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), ast.getValue().map(value -> replace(value, target, replacement)));
+            declaration.setVariable(ast.getVariable());
+            return declaration;
+        } else if(statement instanceof Ast.Statement.Assignment) {
+            Ast.Statement.Assignment ast = (Ast.Statement.Assignment) statement;
+            return new Ast.Statement.Assignment(replace(ast.getReceiver(), target, replacement), replace(ast.getValue(), target, replacement));
+        } else if(statement instanceof Ast.Statement.Return) {
+            return new Ast.Statement.Return(replace(((Ast.Statement.Return) statement).getValue(), target, replacement));
+        } else if(statement instanceof Ast.Statement.If) {
+            Ast.Statement.If ast = (Ast.Statement.If) statement;
+            return new Ast.Statement.If(replace(ast.getCondition(), target, replacement), replace(ast.getThenStatements(), target, replacement), replace(ast.getElseStatements(), target, replacement));
+        } else if(statement instanceof Ast.Statement.While) {
+            Ast.Statement.While ast = (Ast.Statement.While) statement;
+            return new Ast.Statement.While(replace(ast.getCondition(), target, replacement), replace(ast.getStatements(), target, replacement));
+        } else if(statement instanceof Ast.Statement.Switch) {
+            Ast.Statement.Switch ast = (Ast.Statement.Switch) statement;
+            List<Ast.Statement.Case> cases = new ArrayList<Ast.Statement.Case>();
+            for(Ast.Statement.Case caseStatement : ast.getCases()) {
+                cases.add(new Ast.Statement.Case(caseStatement.getValue(), replace(caseStatement.getStatements(), target, replacement)));
+            }
+            return new Ast.Statement.Switch(replace(ast.getCondition(), target, replacement), cases);
+        }
+
+        return statement;
+    }
+
+    private static List<Ast.Statement> replace(List<Ast.Statement> statements, Ast.Expression target, Ast.Expression replacement) {
+
+        List<Ast.Statement> replaced = new ArrayList<Ast.Statement>();
+        for(Ast.Statement statement : statements) {
+            replaced.add(replace(statement, target, replacement));
+        }
+
+        return replaced;
+    }
+
+    private static Ast.Expression replace(Ast.Expression expression, Ast.Expression target, Ast.Expression replacement) {
+
+        if(same(expression, target)) {
+            return replacement;
+        } else if(expression instanceof Ast.Expression.Group) {
+            Ast.Expression.Group group = new Ast.Expression.Group(replace(((Ast.Expression.Group) expression).getExpression(), target, replacement));
+            group.setType(expression.getType());
+            return group;
+        } else if(expression instanceof Ast.Expression.Binary) {
+            Ast.Expression.Binary ast = (Ast.Expression.Binary) expression;
+            Ast.Expression.Binary binary = new Ast.Expression.Binary(ast.getOperator(), replace(ast.getLeft(), target, replacement), replace(ast.getRight(), target, replacement));
+            binary.setType(ast.getType());
+            binary.setOperation(ast.getOperation());
+            return binary;
+        } else if(expression instanceof Ast.Expression.Access) {
+            Ast.Expression.Access ast = (Ast.Expression.Access) expression;
+            Ast.Expression.Access access = new Ast.Expression.Access(ast.getOffset().map(offset -> replace(offset, target, replacement)), ast.getName());
+            access.setVariable(ast.getVariable());
+            return access;
+        } else if(expression instanceof Ast.Expression.Function) {
+            Ast.Expression.Function ast = (Ast.Expression.Function) expression;
+            List<Ast.Expression> arguments = new ArrayList<Ast.Expression>();
+            for(Ast.Expression argument : ast.getArguments()) {
+                arguments.add(replace(argument, target, replacement));
+            }
+            Ast.Expression.Function function = new Ast.Expression.Function(ast.getName(), arguments);
+            function.setFunction(ast.getFunction());
+            return function;
+        } else if(expression instanceof Ast.Expression.PlcList) {
+            Ast.Expression.PlcList ast = (Ast.Expression.PlcList) expression;
+            List<Ast.Expression> values = new ArrayList<Ast.Expression>();
+            for(Ast.Expression value : ast.getValues()) {
+                values.add(replace(value, target, replacement));
+            }
+            Ast.Expression.PlcList list = new Ast.Expression.PlcList(values);
+            list.setType(ast.getType());
+            return list;
+        }
+
+        return expression;
+    }
+
+}
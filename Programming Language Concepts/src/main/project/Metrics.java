@@ -0,0 +1,23 @@
+package plc.project;
+
+//a metrics sink receives a measurement every time a compiler stage finishes and every time the interpreter finishes a function call
+//a stage that throws reports failed (with the name of its stage, lex, parse, analyze or generate) instead of its own measurement
+//it is set with Telemetry.setMetrics and called from whatever thread ran the stage, so implementations must be thread safe
+//every method does nothing by default, so a sink only implements the measurements it is interested in
+public interface Metrics {
+
+    Metrics NONE = new Metrics() {};
+
+    default void lexed(int tokens, long nanos) {}
+
+    default void parsed(int nodes, long nanos) {}
+
+    default void analyzed(int nodes, long nanos) {}
+
+    default void generated(long characters, long nanos) {}
+
+    default void invoked(String function, long nanos) {}
+
+    default void failed(String stage, long nanos) {}
+
+}
@@ -0,0 +1,202 @@
+package plc.project;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+//the module cache keeps the compiled classes of the programs it has run, so launching a program again skips generating and compiling it
+//-(javac is most of the time a short program takes), and keeps a class data sharing (AppCDS) archive of every class the program loaded,
+//-so launching it again also skips loading and verifying most classes (the JVM maps them from the archive instead)
+//a program is keyed by the SHA-256 of the code generated from its analyzed tree (the tree's own toString has the identities of the
+//-interpreter's functions in it, the code is exactly what the tree compiles to) and the JVM it runs on, as an archive only fits the JVM that made it
+
+//a module is a directory named by its key, holding Main.java (with its source map), the classes in Main.jar (class data sharing only
+//-archives classes from jars, a directory on the class path disables it) and, after its first run, the archive
+//a module is compiled in a directory of its own and renamed into place, so a module directory is always complete, and several launches
+//-(or processes) may share a cache: the ones that compile the same program at once all compile it, and the first to rename it wins
+public final class ModuleCache {
+
+    private static final String JAR = "Main.jar";
+    private static final String ARCHIVE = "app.jsa";
+
+    private final Path directory;
+    private long hits = 0;
+    private long misses = 0;
+
+    //a cache in the given directory, which is created when the first module is compiled
+    public ModuleCache(Path directory) {
+        this.directory = directory;
+    }
+
+    //the key of an analyzed source, a lowercase hex SHA-256
+    public static String key(Ast.Source ast) {
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch(NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); //every Java platform has SHA-256
+        }
+
+        digest.update((System.getProperty("java.vm.name") + " " + System.getProperty("java.vm.version") + "\n").getBytes(StandardCharsets.UTF_8));
+        new Generator(new Emitter(new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer bytes) {
+                int count = bytes.remaining();
+                digest.update(bytes);
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {}
+        })).visit(ast);
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    //the directory of the module of an analyzed source, generating and compiling it unless it is cached
+    public Path compile(Ast.Source ast) throws IOException {
+
+        Path module = directory.resolve(key(ast));
+        if(Files.isDirectory(module)) {
+            hits++;
+            return module;
+        }
+        misses++;
+
+        Files.createDirectories(directory);
+        Path staging = Files.createTempDirectory(directory, module.getFileName() + ".");
+        try {
+            Path source = staging.resolve("Main.java");
+            Generator.generate(ast, source);
+            Path classes = Files.createDirectory(staging.resolve("classes"));
+            javac(source, classes);
+            jar(classes, staging.resolve(JAR));
+            delete(classes);
+            try {
+                Files.move(staging, module, StandardCopyOption.ATOMIC_MOVE);
+            } catch(FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                //another launch cached the same program first
+            }
+        } finally {
+            delete(staging);
+        }
+
+        return module;
+    }
+
+    //runs the main function of an analyzed source in a new JVM started from the given builder (which chooses where its input and output go),
+    //-returning its exit code, the value main returned
+    //the first run records the archive, which is only moved into the module once the JVM wrote all of it, so a later run never maps an
+    //-archive that is still being written (a JVM that can't use an archive, Xshare:auto being the default, ignores it)
+    public int run(Ast.Source ast, ProcessBuilder builder) throws IOException, InterruptedException {
+
+        Path module = compile(ast);
+        Path archive = module.resolve(ARCHIVE);
+        Path recording = null;
+
+        List<String> command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if(Files.exists(archive)) {
+            command.add("-XX:SharedArchiveFile=" + archive);
+        } else {
+            recording = Files.createTempFile(module, ARCHIVE + ".", ".tmp");
+            command.add("-XX:ArchiveClassesAtExit=" + recording);
+        }
+        command.addAll(List.of("-cp", module.resolve(JAR).toString(), "Main"));
+
+        int exit;
+        try {
+            exit = builder.command(command).start().waitFor();
+            if(recording != null && Files.size(recording) > 0) {
+                Files.move(recording, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if(recording != null) {
+                Files.deleteIfExists(recording);
+            }
+        }
+
+        return exit;
+    }
+
+    //the number of compiles that found the module in the cache
+    public long getHits() {
+        return hits;
+    }
+
+    //the number of compiles that generated and compiled the module
+    public long getMisses() {
+        return misses;
+    }
+
+    //compiles a generated file, throwing if there is no compiler (a JRE without the jdk.compiler module) or the code doesn't compile
+    private static void javac(Path source, Path classes) {
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null) {
+            throw new IllegalStateException("No Java compiler available.");
+        }
+
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        if(compiler.run(null, null, errors, "-proc:none", "-d", classes.toString(), source.toString()) != 0) {
+            throw new IllegalStateException("The generated code doesn't compile: " + errors);
+        }
+    }
+
+    //packs the classes of a directory (with no packages, which generated classes never have) into a jar
+    private static void jar(Path classes, Path jar) throws IOException {
+
+        try(JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar)); Stream<Path> files = Files.list(classes)) {
+            for(Path file : (Iterable<Path>) files.sorted()::iterator) {
+                out.putNextEntry(new JarEntry(file.getFileName().toString()));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+
+        if(!Files.exists(path)) {
+            return;
+        }
+
+        try(Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.delete(file);
+                } catch(IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch(UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+//an Operation is a binary operator specialized to the operand types the analyzer resolved for it
+//the interpreter applies it directly instead of comparing the operator string and checking the runtime types of the operands
+//each operation has the same result as the generic Interpreter.visit(Ast.Expression.Binary) for operands of its types
+public enum Operation {
+
+    AND {
+        @Override
+        public Object apply(Object left, Object right) {
+            return (Boolean) left && (Boolean) right;
+        }
+    },
+    OR {
+        @Override
+        public Object apply(Object left, Object right) {
+            return (Boolean) left || (Boolean) right;
+        }
+    },
+    INTEGER_LESS {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigInteger) left).compareTo((BigInteger) right) < 0;
+        }
+    },
+    INTEGER_GREATER {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigInteger) left).compareTo((BigInteger) right) > 0;
+        }
+    },
+    DECIMAL_LESS {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigDecimal) left).compareTo((BigDecimal) right) < 0;
+        }
+    },
+    DECIMAL_GREATER {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigDecimal) left).compareTo((BigDecimal) right) > 0;
+        }
+    },
+    LESS {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object apply(Object left, Object right) {
+            return ((Comparable<Object>) left).compareTo(left.getClass().cast(right)) < 0;
+        }
+    },
+    GREATER {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object apply(Object left, Object right) {
+            return ((Comparable<Object>) left).compareTo(left.getClass().cast(right)) > 0;
+        }
+    },
+    EQUAL {
+        @Override
+        public Object apply(Object left, Object right) {
+            return left.equals(right);
+        }
+    },
+    NOT_EQUAL {
+        @Override
+        public Object apply(Object left, Object right) {
+            return !left.equals(right);
+        }
+    },
+    STRING_CONCAT {
+        @Override
+        public Object apply(Object left, Object right) {
+            return left.toString() + right.toString();
+        }
+    },
+    INTEGER_ADD {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigInteger) left).add((BigInteger) right);
+        }
+    },
+    INTEGER_SUBTRACT {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigInteger) left).subtract((BigInteger) right);
+        }
+    },
+    INTEGER_MULTIPLY {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigInteger) left).multiply((BigInteger) right);
+        }
+    },
+    INTEGER_DIVIDE {
+        @Override
+        public Object apply(Object left, Object right) {
+            if(((BigInteger) right).signum() == 0) {
+                throw new RuntimeException("Cannot divide by zero in BigInteger");
+            }
+            return ((BigInteger) left).divide((BigInteger) right);
+        }
+    },
+    INTEGER_POWER {
+        @Override
+        public Object apply(Object left, Object right) {
+            return Interpreter.power((BigInteger) left, (BigInteger) right);
+        }
+    },
+    DECIMAL_ADD {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigDecimal) left).add((BigDecimal) right);
+        }
+    },
+    DECIMAL_SUBTRACT {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigDecimal) left).subtract((BigDecimal) right);
+        }
+    },
+    DECIMAL_MULTIPLY {
+        @Override
+        public Object apply(Object left, Object right) {
+            return ((BigDecimal) left).multiply((BigDecimal) right);
+        }
+    },
+    DECIMAL_DIVIDE {
+        @Override
+        public Object apply(Object left, Object right) {
+            if(((BigDecimal) right).signum() == 0) {
+                throw new RuntimeException("Cannot divide by zero in BigDecimal");
+            }
+            return ((BigDecimal) left).divide((BigDecimal) right, RoundingMode.HALF_EVEN);
+        }
+    },
+    DECIMAL_POWER {
+        @Override
+        public Object apply(Object left, Object right) {
+            return Interpreter.power((BigDecimal) left, (BigInteger) right);
+        }
+    };
+
+    //applies the operation to the values of both operands (AND and OR are short circuited by the interpreter before this is called)
+    public abstract Object apply(Object left, Object right);
+
+    //returns the specialized operation for an operator given the analyzed types of its operands, or null if there is none
+    //the types are the ones Analyzer.visit(Ast.Expression.Binary) accepts, anything else is left to the generic interpreter path
+    public static Operation specialize(String operator, Environment.Type left, Environment.Type right) {
+
+        boolean integers = left.equals(Environment.Type.INTEGER) && right.equals(Environment.Type.INTEGER);
+        boolean decimals = left.equals(Environment.Type.DECIMAL) && right.equals(Environment.Type.DECIMAL);
+
+        switch(operator) {
+            case "&&":
+                return AND;
+            case "||":
+                return OR;
+            case "<":
+                return integers ? INTEGER_LESS : decimals ? DECIMAL_LESS : LESS;
+            case ">":
+                return integers ? INTEGER_GREATER : decimals ? DECIMAL_GREATER : GREATER;
+            case "==":
+                return EQUAL;
+            case "!=":
+                return NOT_EQUAL;
+            case "+":
+                if(left.equals(Environment.Type.STRING) || right.equals(Environment.Type.STRING)) {
+                    return STRING_CONCAT;
+                }
+                return integers ? INTEGER_ADD : decimals ? DECIMAL_ADD : null;
+            case "-":
+                return integers ? INTEGER_SUBTRACT : decimals ? DECIMAL_SUBTRACT : null;
+            case "*":
+                return integers ? INTEGER_MULTIPLY : decimals ? DECIMAL_MULTIPLY : null;
+            case "/":
+                return integers ? INTEGER_DIVIDE : decimals ? DECIMAL_DIVIDE : null;
+            case "^":
+                if(!right.equals(Environment.Type.INTEGER)) {
+                    return null;
+                }
+                return left.equals(Environment.Type.INTEGER) ? INTEGER_POWER : left.equals(Environment.Type.DECIMAL) ? DECIMAL_POWER : null;
+            default:
+                return null;
+        }
+    }
+
+}
@@ -0,0 +1,335 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+//the optimizer is an AST to AST pass that runs after the analyzer (it relies on the types, variables, and functions the analyzer sets)
+//it folds expressions whose operands are all literals and removes branches that can never run, so the simplified tree is what
+//-the interpreter evaluates and what the generator prints
+
+//it uses the same visitor pattern (double dispatch) as the other passes, where every visit returns the optimized node
+//folding goes through the specialized Operation of each operator so it has exactly the interpreter's semantics, and anything that
+//-would throw at runtime (such as dividing by zero) is left in the tree so the error still happens when the program runs
+public final class Optimizer implements Ast.Visitor<Ast> {
+
+    private static final BigInteger MAX_INT = BigInteger.valueOf(Integer.MAX_VALUE);
+    private static final BigInteger MIN_INT = BigInteger.valueOf(Integer.MIN_VALUE);
+    private static final BigDecimal MAX_DOUBLE = new BigDecimal(Double.MAX_VALUE);
+
+    //optimizes every global value and function, globals and functions themselves are never removed
+    @Override
+    public Ast.Source visit(Ast.Source ast) {
+
+        List<Ast.Global> globals = new ArrayList<Ast.Global>();
+        for(Ast.Global global : ast.getGlobals()) {
+            globals.add(visit(global));
+        }
+
+        List<Ast.Function> functions = new ArrayList<Ast.Function>();
+        for(Ast.Function function : ast.getFunctions()) {
+            functions.add(visit(function));
+        }
+
+        return new Ast.Source(globals, functions);
+    }
+
+    @Override
+    public Ast.Global visit(Ast.Global ast) {
+
+        Ast.Global global = new Ast.Global(ast.getName(), ast.getTypeName(), ast.getMutable(), optimize(ast.getValue()));
+        global.setVariable(ast.getVariable());
+
+        return global;
+    }
+
+    @Override
+    public Ast.Function visit(Ast.Function ast) {
+
+        Ast.Function function = new Ast.Function(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), optimize(ast.getStatements()));
+        function.setFunction(ast.getFunction());
+        function.setParameterVariables(ast.getParameterVariables());
+        function.setIndex(ast.getIndex());
+
+        return function;
+    }
+
+    @Override
+    public Ast.Statement.Expression visit(Ast.Statement.Expression ast) {
+        return new Ast.Statement.Expression(optimize(ast.getExpression()));
+    }
+
+    @Override
+    public Ast.Statement.Declaration visit(Ast.Statement.Declaration ast) {
+
+        Ast.Statement.Declaration declaration = new Ast.Statement.Declaration(ast.getName(), ast.getTypeName(), optimize(ast.getValue()));
+        declaration.setVariable(ast.getVariable());
+
+        return declaration;
+    }
+
+    @Override
+    public Ast.Statement.Assignment visit(Ast.Statement.Assignment ast) {
+        return new Ast.Statement.Assignment(optimize(ast.getReceiver()), optimize(ast.getValue()));
+    }
+
+    //only the condition and blocks are optimized here, removing the statement when its condition is constant is done in optimize(List)
+    @Override
+    public Ast.Statement.If visit(Ast.Statement.If ast) {
+        return new Ast.Statement.If(optimize(ast.getCondition()), optimize(ast.getThenStatements()), optimize(ast.getElseStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Switch visit(Ast.Statement.Switch ast) {
+
+        List<Ast.Statement.Case> cases = new ArrayList<Ast.Statement.Case>();
+        for(Ast.Statement.Case caseStatement : ast.getCases()) {
+            cases.add(visit(caseStatement));
+        }
+
+        return new Ast.Statement.Switch(optimize(ast.getCondition()), cases);
+    }
+
+    @Override
+    public Ast.Statement.Case visit(Ast.Statement.Case ast) {
+        return new Ast.Statement.Case(optimize(ast.getValue()), optimize(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.While visit(Ast.Statement.While ast) {
+        return new Ast.Statement.While(optimize(ast.getCondition()), optimize(ast.getStatements()));
+    }
+
+    @Override
+    public Ast.Statement.Return visit(Ast.Statement.Return ast) {
+        return new Ast.Statement.Return(optimize(ast.getValue()));
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Literal ast) {
+        return ast;
+    }
+
+    //a group around a constant is replaced by the constant itself
+    @Override
+    public Ast.Expression visit(Ast.Expression.Group ast) {
+
+        Ast.Expression expression = optimize(ast.getExpression());
+        if(expression instanceof Ast.Expression.Literal) {
+            return expression;
+        }
+
+        Ast.Expression.Group group = new Ast.Expression.Group(expression);
+        group.setType(ast.getType());
+
+        return group;
+    }
+
+    //folds the binary when both operands are constants, && and || are also folded when only the left operand is constant
+    @Override
+    public Ast.Expression visit(Ast.Expression.Binary ast) {
+
+        Ast.Expression left = optimize(ast.getLeft());
+        Ast.Expression right = optimize(ast.getRight());
+
+        if(left instanceof Ast.Expression.Literal && (ast.getOperator().equals("&&") || ast.getOperator().equals("||"))) {
+            boolean value = (Boolean) ((Ast.Expression.Literal) left).getLiteral();
+            //TRUE && x and FALSE || x are just x, FALSE && x and TRUE || x never evaluate x
+            if(value == ast.getOperator().equals("&&")) {
+                return right;
+            }
+            return left;
+        }
+
+        if(left instanceof Ast.Expression.Literal && right instanceof Ast.Expression.Literal) {
+            Ast.Expression.Literal folded = fold(ast, (Ast.Expression.Literal) left, (Ast.Expression.Literal) right);
+            if(folded != null) {
+                return folded;
+            }
+        }
+
+        Ast.Expression.Binary binary = new Ast.Expression.Binary(ast.getOperator(), left, right);
+        binary.setType(ast.getType());
+        binary.setOperation(ast.getOperation());
+
+        return binary;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Access ast) {
+
+        Ast.Expression.Access access = new Ast.Expression.Access(optimize(ast.getOffset()), ast.getName());
+        access.setVariable(ast.getVariable());
+
+        return access;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.Function ast) {
+
+        List<Ast.Expression> arguments = new ArrayList<Ast.Expression>();
+        for(Ast.Expression argument : ast.getArguments()) {
+            arguments.add(optimize(argument));
+        }
+
+        Ast.Expression.Function function = new Ast.Expression.Function(ast.getName(), arguments);
+        function.setFunction(ast.getFunction());
+
+        return function;
+    }
+
+    @Override
+    public Ast.Expression visit(Ast.Expression.PlcList ast) {
+
+        List<Ast.Expression> values = new ArrayList<Ast.Expression>();
+        for(Ast.Expression value : ast.getValues()) {
+            values.add(optimize(value));
+        }
+
+        Ast.Expression.PlcList list = new Ast.Expression.PlcList(values);
+        list.setType(ast.getType());
+
+        return list;
+    }
+
+    //optimizes a block, dropping statements that can never run and replacing constant IF/SWITCH statements with the block that always runs
+    private List<Ast.Statement> optimize(List<Ast.Statement> statements) {
+
+        List<Ast.Statement> optimized = new ArrayList<Ast.Statement>();
+
+        for(Ast.Statement statement : statements) {
+
+            Ast.Statement result = (Ast.Statement) visit(statement);
+            result.setIndex(statement.getIndex());
+
+            if(result instanceof Ast.Statement.If && ((Ast.Statement.If) result).getCondition() instanceof Ast.Expression.Literal) {
+                Ast.Statement.If ifStatement = (Ast.Statement.If) result;
+                boolean condition = (Boolean) ((Ast.Expression.Literal) ifStatement.getCondition()).getLiteral();
+                inline(condition ? ifStatement.getThenStatements() : ifStatement.getElseStatements(), optimized);
+
+            } else if(result instanceof Ast.Statement.While && isFalse(((Ast.Statement.While) result).getCondition())) {
+                continue;
+
+            } else if(result instanceof Ast.Statement.Switch && constantCase((Ast.Statement.Switch) result) != null) {
+                inline(constantCase((Ast.Statement.Switch) result).getStatements(), optimized);
+
+            } else {
+                optimized.add(result);
+            }
+        }
+
+        return optimized;
+    }
+
+    //adds the statements of a block that always runs to the enclosing block
+    //a block declaring variables keeps its own scope (as IF TRUE) so the declarations can't clash with the enclosing block's variables
+    private static void inline(List<Ast.Statement> block, List<Ast.Statement> enclosing) {
+
+        if(block.isEmpty()) {
+            return;
+        }
+
+        for(Ast.Statement statement : block) {
+            if(statement instanceof Ast.Statement.Declaration) {
+                Ast.Expression.Literal condition = new Ast.Expression.Literal(true);
+                condition.setType(Environment.Type.BOOLEAN);
+                enclosing.add(new Ast.Statement.If(condition, block, new ArrayList<Ast.Statement>()));
+                return;
+            }
+        }
+
+        enclosing.addAll(block);
+    }
+
+    //returns the case that a switch on a constant always runs, or null if the condition or any case value isn't a constant
+    private static Ast.Statement.Case constantCase(Ast.Statement.Switch ast) {
+
+        if(!(ast.getCondition() instanceof Ast.Expression.Literal) || ((Ast.Expression.Literal) ast.getCondition()).getLiteral() == null) {
+            return null;
+        }
+        Object condition = ((Ast.Expression.Literal) ast.getCondition()).getLiteral();
+
+        for(Ast.Statement.Case caseStatement : ast.getCases()) {
+            if(!caseStatement.getValue().isPresent()) {
+                return caseStatement;
+            } else if(!(caseStatement.getValue().get() instanceof Ast.Expression.Literal)) {
+                return null;
+            } else if(((Ast.Expression.Literal) caseStatement.getValue().get()).getLiteral().equals(condition)) {
+                return caseStatement;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isFalse(Ast.Expression expression) {
+        return expression instanceof Ast.Expression.Literal && Boolean.FALSE.equals(((Ast.Expression.Literal) expression).getLiteral());
+    }
+
+    //evaluates a binary of two literals, returning null when it should be left for runtime
+    private static Ast.Expression.Literal fold(Ast.Expression.Binary ast, Ast.Expression.Literal left, Ast.Expression.Literal right) {
+
+        if(!isFoldable(ast.getOperator(), left.getLiteral(), right.getLiteral())) {
+            return null;
+        }
+
+        Operation operation = Operation.specialize(ast.getOperator(), left.getType(), right.getType());
+        if(operation == null) {
+            return null;
+        }
+
+        Object value;
+        try {
+            value = operation.apply(left.getLiteral(), right.getLiteral());
+        } catch(RuntimeException e) {
+            return null; //division by zero and the like must still fail when the program runs
+        }
+
+        if(value instanceof BigInteger && (((BigInteger) value).compareTo(MAX_INT) > 0 || ((BigInteger) value).compareTo(MIN_INT) < 0)) {
+            return null; //the generator emits integers as int
+        } else if(value instanceof BigDecimal && ((BigDecimal) value).abs().compareTo(MAX_DOUBLE) > 0) {
+            return null; //and decimals as double
+        }
+
+        Ast.Expression.Literal literal = new Ast.Expression.Literal(value);
+        literal.setType(ast.getType());
+
+        return literal;
+    }
+
+    //operations whose result would differ between the interpreter (BigDecimal) and the generated Java (double) are not folded:
+    //-decimal division and powers round differently, decimal equality depends on the scale, and decimals and NIL print differently when concatenated
+    private static boolean isFoldable(String operator, Object left, Object right) {
+
+        if(left == null || right == null) {
+            return false;
+        }
+
+        boolean decimal = left instanceof BigDecimal || right instanceof BigDecimal;
+        switch(operator) {
+            case "/":
+            case "^":
+            case "==":
+            case "!=":
+                return !decimal;
+            case "+":
+                return !decimal || !(left instanceof String || right instanceof String);
+            default:
+                return true;
+        }
+    }
+
+    private Ast.Expression optimize(Ast.Expression expression) {
+        return (Ast.Expression) visit(expression);
+    }
+
+    private Optional<Ast.Expression> optimize(Optional<Ast.Expression> expression) {
+        if(expression.isPresent()) {
+            return Optional.of(optimize(expression.get()));
+        }
+        return Optional.empty();
+    }
+
+}
@@ -29,24 +29,37 @@ public final class Parser {
     //throws error if there is anything after the last function because that violated the grammar
     public Ast.Source parseSource() throws ParseException {
 
+        Telemetry.ParseEvent event = new Telemetry.ParseEvent();
+        event.begin();
+        long start = System.nanoTime();
+
         List<Ast.Global> globalsList = new ArrayList<Ast.Global>();
         List<Ast.Function> functionsList = new ArrayList<Ast.Function>();
+        Ast.Source source = null; //stays null if parsing fails
 
-        //kleene closure global
-        while(peek("VAL") || peek("VAR") || peek("LIST")) {
-            globalsList.add(parseGlobal());
-        }
+        try {
+            //kleene closure global
+            while(peek("VAL") || peek("VAR") || peek("LIST")) {
+                globalsList.add(parseGlobal());
+            }
 
-        //kleene closure functions
-        while(peek("FUN")) {
-            functionsList.add(parseFunction());
-        }
+            //kleene closure functions
+            while(peek("FUN")) {
+                int index = tokens.get(0).getIndex();
+                Ast.Function function = parseFunction();
+                function.setIndex(index);
+                functionsList.add(function);
+            }
 
-        if(tokens.has(0)) {
-            errorCases();
-        }
+            if(tokens.has(0)) {
+                errorCases();
+            }
 
-        return new Ast.Source(globalsList, functionsList);
+            source = new Ast.Source(globalsList, functionsList);
+            return source;
+        } finally {
+            Telemetry.parsed(event, start, source);
+        }
     }
 
     //parses all globals in the global field according to the grammar, defined as either a mutable, immutable, or list
@@ -323,7 +336,10 @@ public final class Parser {
     public List<Ast.Statement> parseBlock() throws ParseException {
         List<Ast.Statement> returnBlock = new ArrayList<Ast.Statement>();
         while(!peek("END") && !peek("DEFAULT") && !peek("ELSE") && !peek("CASE")) {
-            returnBlock.add(parseStatement());
+            int index = tokens.has(0) ? tokens.get(0).getIndex() : -1; //an unterminated block fails in parseStatement
+            Ast.Statement statement = parseStatement();
+            statement.setIndex(index);
+            returnBlock.add(statement);
         }
 
         return returnBlock;
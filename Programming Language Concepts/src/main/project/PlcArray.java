@@ -0,0 +1,238 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+//a PlcArray is the value of a LIST in the interpreter, a fixed size list storing its elements in a primitive array chosen from the element type
+//-(long[] for Integer, double[] for Decimal, char[] for Character, boolean[] for Boolean, and Object[] for anything else)
+//integers and decimals are arbitrary precision, so a value that doesn't fit the primitive array exactly (an integer outside of the long range,
+//-or a decimal a double can't hold) moves the whole list to the Object[] storage, which is only ever done once
+
+//large Integer and Decimal lists can instead be stored off heap in a direct buffer, which the garbage collector never has to scan or copy
+//-an off heap list belongs to the interpreter that created it, and is released (and can no longer be used) when that interpreter is closed
+//the interpreter allocates a list before evaluating its elements and stores each one as it is evaluated (see allocate), so a list of boxed
+//-values is never built next to it, and its peak heap use is its storage plus a single element
+//a value an off heap list can't hold moves the list to the Object[] storage on the heap like any other list (isOffHeap is then false),
+//-and a list whose buffer would be larger than a ByteBuffer can be (2^31 bytes, 2^28 integers) is kept on the heap from the start, so the
+//-byte offset of an element always fits an int
+public final class PlcArray extends AbstractList<Object> implements RandomAccess {
+
+    private final int size;
+
+    //exactly one of the storage arrays is used, decimals also keep their scale so 1.50 stays 1.50 (and not 1.5)
+    private long[] longs;
+    private double[] doubles;
+    private int[] scales;
+    private char[] chars;
+    private boolean[] booleans;
+    private Object[] objects;
+
+    //off heap storage, 8 bytes (a long) per integer and 12 bytes (a double and its scale) per decimal
+    private static final int DECIMAL_BYTES = Double.BYTES + Integer.BYTES;
+    private ByteBuffer offHeapLongs;
+    private ByteBuffer offHeapDecimals;
+    private boolean released = false;
+
+    //creates the list of the given values, the element type is the one the analyzer resolved (or null if the tree wasn't analyzed,
+    //-in which case it is inferred from the first value)
+    public static PlcArray of(Environment.Type elementType, List<Object> values) {
+        return of(elementType, values, false);
+    }
+
+    //creates the list of the given values, stored off heap if it is a list of integers or decimals and offHeap is true
+    public static PlcArray of(Environment.Type elementType, List<Object> values, boolean offHeap) {
+
+        if(elementType == null && !values.isEmpty()) {
+            elementType = typeOf(values.get(0));
+        }
+
+        PlcArray array = allocate(elementType, values.size(), offHeap);
+        for(int i = 0; i < values.size(); i++) {
+            array.put(i, values.get(i));
+        }
+
+        return array;
+    }
+
+    //creates a list of size elements that are all zero, false or null, which the caller then stores every element of with put
+    public static PlcArray allocate(Environment.Type elementType, int size, boolean offHeap) {
+        return new PlcArray(elementType, size, offHeap);
+    }
+
+    private PlcArray(Environment.Type elementType, int size, boolean offHeap) {
+
+        this.size = size;
+
+        if(offHeap && elementType == Environment.Type.INTEGER && size <= Integer.MAX_VALUE / Long.BYTES) {
+            offHeapLongs = ByteBuffer.allocateDirect(size * Long.BYTES).order(ByteOrder.nativeOrder());
+        } else if(offHeap && elementType == Environment.Type.DECIMAL && size <= Integer.MAX_VALUE / DECIMAL_BYTES) {
+            offHeapDecimals = ByteBuffer.allocateDirect(size * DECIMAL_BYTES).order(ByteOrder.nativeOrder());
+        } else if(elementType == Environment.Type.INTEGER) {
+            longs = new long[size];
+        } else if(elementType == Environment.Type.DECIMAL) {
+            doubles = new double[size];
+            scales = new int[size];
+        } else if(elementType == Environment.Type.CHARACTER) {
+            chars = new char[size];
+        } else if(elementType == Environment.Type.BOOLEAN) {
+            booleans = new boolean[size];
+        } else {
+            objects = new Object[size];
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //whether the list is stored off heap
+    public boolean isOffHeap() {
+        return offHeapLongs != null || offHeapDecimals != null;
+    }
+
+    //releases the off heap storage, any later use of the list throws
+    //the memory itself is returned once the garbage collector finds the (no longer referenced) buffer unreachable
+    public void release() {
+        released = true;
+        offHeapLongs = null;
+        offHeapDecimals = null;
+    }
+
+    @Override
+    public Object get(int index) {
+
+        Objects.checkIndex(index, size);
+        checkReleased();
+
+        if(offHeapLongs != null) {
+            return BigInteger.valueOf(offHeapLongs.getLong(index * Long.BYTES));
+        } else if(offHeapDecimals != null) {
+            int offset = index * DECIMAL_BYTES;
+            return BigDecimal.valueOf(offHeapDecimals.getDouble(offset)).setScale(offHeapDecimals.getInt(offset + Double.BYTES));
+        } else if(longs != null) {
+            return BigInteger.valueOf(longs[index]);
+        } else if(doubles != null) {
+            return BigDecimal.valueOf(doubles[index]).setScale(scales[index]);
+        } else if(chars != null) {
+            return chars[index];
+        } else if(booleans != null) {
+            return booleans[index];
+        }
+
+        return objects[index];
+    }
+
+    @Override
+    public Object set(int index, Object value) {
+
+        Object previous = get(index);
+        put(index, value);
+
+        return previous;
+    }
+
+    //sets an element without reading (and so boxing) the element it replaces, which is what the interpreter uses for assignments
+    //a value the storage can't hold exactly moves the whole list to the Object[] storage, an off heap list included
+    public void put(int index, Object value) {
+
+        Objects.checkIndex(index, size);
+        checkReleased();
+
+        if(!store(index, value)) {
+            toObjects();
+            objects[index] = value;
+        }
+    }
+
+    //stores the value in the primitive array, returning false if it can't hold the value exactly
+    private boolean store(int index, Object value) {
+
+        if(longs != null || offHeapLongs != null) {
+            if(!(value instanceof BigInteger) || ((BigInteger) value).bitLength() >= Long.SIZE) {
+                return false;
+            }
+            if(longs != null) {
+                longs[index] = ((BigInteger) value).longValue();
+            } else {
+                offHeapLongs.putLong(index * Long.BYTES, ((BigInteger) value).longValue());
+            }
+        } else if(doubles != null || offHeapDecimals != null) {
+            if(!(value instanceof BigDecimal)) {
+                return false;
+            }
+            double decimal = ((BigDecimal) value).doubleValue();
+            if(Double.isInfinite(decimal) || BigDecimal.valueOf(decimal).compareTo((BigDecimal) value) != 0) {
+                return false;
+            }
+            if(doubles != null) {
+                doubles[index] = decimal;
+                scales[index] = ((BigDecimal) value).scale();
+            } else {
+                offHeapDecimals.putDouble(index * DECIMAL_BYTES, decimal);
+                offHeapDecimals.putInt(index * DECIMAL_BYTES + Double.BYTES, ((BigDecimal) value).scale());
+            }
+        } else if(chars != null) {
+            if(!(value instanceof Character)) {
+                return false;
+            }
+            chars[index] = (Character) value;
+        } else if(booleans != null) {
+            if(!(value instanceof Boolean)) {
+                return false;
+            }
+            booleans[index] = (Boolean) value;
+        } else {
+            objects[index] = value;
+        }
+
+        return true;
+    }
+
+    //moves every element to the Object[] storage
+    private void toObjects() {
+
+        Object[] values = new Object[size];
+        for(int i = 0; i < size; i++) {
+            values[i] = get(i);
+        }
+
+        longs = null;
+        offHeapLongs = null;
+        doubles = null;
+        offHeapDecimals = null;
+        scales = null;
+        chars = null;
+        booleans = null;
+        objects = values;
+    }
+
+    private void checkReleased() {
+        if(released) {
+            throw new RuntimeException("List used after its interpreter was closed");
+        }
+    }
+
+    //the element type of a list inferred from one of its values, for a tree that wasn't analyzed
+    static Environment.Type typeOf(Object value) {
+
+        if(value instanceof BigInteger) {
+            return Environment.Type.INTEGER;
+        } else if(value instanceof BigDecimal) {
+            return Environment.Type.DECIMAL;
+        } else if(value instanceof Character) {
+            return Environment.Type.CHARACTER;
+        } else if(value instanceof Boolean) {
+            return Environment.Type.BOOLEAN;
+        }
+
+        return Environment.Type.ANY;
+    }
+
+}
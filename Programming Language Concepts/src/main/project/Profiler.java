@@ -0,0 +1,189 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+//a profiler records where an interpreter spends its time, set with Interpreter.setProfiler (an interpreter without one only checks for null)
+//every function and statement gets its number of runs, its inclusive time (with everything it ran) and exclusive time, and an estimate of
+//-the bytes allocated while it ran, taken from the JVM's per thread allocation counter
+//the exclusive time of a statement is without the statements and functions it ran, the exclusive time of a function is only without the
+//-functions it called (its statements are part of the function), which is also the time its stacks get
+//the stacks of function calls are also recorded, each with the time spent in its last function, and can be written as folded stacks
+//-(one "main;f;g nanoseconds" line per stack), the input format of flame graph tools
+//statements are identified by their index in the source (Ast.getIndex), so profile the tree the parser built (or the optimizers copied)
+//a profiler is used by one interpreter on one thread at a time
+public final class Profiler {
+
+    //the numbers recorded for one function or statement
+    public static final class Stats {
+
+        private long count = 0;
+        private long inclusiveNanos = 0;
+        private long exclusiveNanos = 0;
+        private long inclusiveBytes = 0;
+        private long exclusiveBytes = 0;
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getInclusiveNanos() {
+            return inclusiveNanos;
+        }
+
+        public long getExclusiveNanos() {
+            return exclusiveNanos;
+        }
+
+        //bytes allocated while it ran (0 if the JVM can't measure allocations)
+        public long getInclusiveBytes() {
+            return inclusiveBytes;
+        }
+
+        public long getExclusiveBytes() {
+            return exclusiveBytes;
+        }
+
+    }
+
+    //a function call or statement that is running
+    private static final class Frame {
+
+        private final Stats stats;
+        private final boolean function;
+        private final long start;
+        private final long startBytes;
+        private long nanos = 0; //the inclusive time and bytes, once it exited
+        private long bytes = 0;
+        private long childNanos = 0; //the statements and functions run directly from this frame (for statement frames only)
+        private long childBytes = 0;
+        private long calleeNanos = 0; //the functions called directly from this function (for function frames only)
+        private long calleeBytes = 0;
+
+        private Frame(Stats stats, boolean function, long start, long startBytes) {
+            this.stats = stats;
+            this.function = function;
+            this.start = start;
+            this.startBytes = startBytes;
+        }
+
+    }
+
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocations();
+
+    private final Map<Ast.Function, Stats> functions = new IdentityHashMap<>();
+    private final Map<Ast.Statement, Stats> statements = new IdentityHashMap<>();
+    private final Map<String, Long> stacks = new LinkedHashMap<>();
+
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private final Deque<Frame> calls = new ArrayDeque<>();
+    private final Deque<String> path = new ArrayDeque<>();
+
+    public void enterFunction(Ast.Function ast) {
+        Frame frame = enter(functions.computeIfAbsent(ast, key -> new Stats()), true);
+        calls.push(frame);
+        path.push(path.isEmpty() ? ast.getName() : path.peek() + ";" + ast.getName());
+    }
+
+    public void exitFunction() {
+        Frame frame = calls.pop();
+        exit();
+        stacks.merge(path.pop(), frame.nanos - frame.calleeNanos, Long::sum);
+        if(!calls.isEmpty()) {
+            calls.peek().calleeNanos += frame.nanos;
+            calls.peek().calleeBytes += frame.bytes;
+        }
+    }
+
+    public void enterStatement(Ast.Statement ast) {
+        enter(statements.computeIfAbsent(ast, key -> new Stats()), false);
+    }
+
+    public void exitStatement() {
+        exit();
+    }
+
+    //the stats of every function that was called, by function
+    public Map<Ast.Function, Stats> getFunctions() {
+        return functions;
+    }
+
+    //the stats of every statement that ran, by statement
+    public Map<Ast.Statement, Stats> getStatements() {
+        return statements;
+    }
+
+    //the stats of every statement that ran and was parsed from source, by its index in the source
+    public Map<Integer, Stats> getStatementsByIndex() {
+
+        Map<Integer, Stats> byIndex = new TreeMap<>();
+        for(Map.Entry<Ast.Statement, Stats> statement : statements.entrySet()) {
+            if(statement.getKey().getIndex() >= 0) {
+                byIndex.put(statement.getKey().getIndex(), statement.getValue());
+            }
+        }
+
+        return byIndex;
+    }
+
+    //the time spent in the last function of every stack of calls, by stack (function names separated by ;)
+    public Map<String, Long> getStacks() {
+        return stacks;
+    }
+
+    //writes the stacks in the folded format flame graph tools read
+    public void writeFolded(Writer writer) throws IOException {
+        for(Map.Entry<String, Long> stack : stacks.entrySet()) {
+            writer.write(stack.getKey() + " " + stack.getValue() + "\n");
+        }
+        writer.flush();
+    }
+
+    private Frame enter(Stats stats, boolean function) {
+        Frame frame = new Frame(stats, function, System.nanoTime(), allocatedBytes());
+        frames.push(frame);
+        return frame;
+    }
+
+    //records a frame that finished (a function frame's callees have all exited, so its calleeNanos are complete)
+    private void exit() {
+
+        Frame frame = frames.pop();
+        frame.nanos = System.nanoTime() - frame.start;
+        frame.bytes = allocatedBytes() - frame.startBytes;
+
+        frame.stats.count++;
+        frame.stats.inclusiveNanos += frame.nanos;
+        frame.stats.exclusiveNanos += frame.nanos - (frame.function ? frame.calleeNanos : frame.childNanos);
+        frame.stats.inclusiveBytes += frame.bytes;
+        frame.stats.exclusiveBytes += frame.bytes - (frame.function ? frame.calleeBytes : frame.childBytes);
+
+        if(!frames.isEmpty()) {
+            frames.peek().childNanos += frame.nanos;
+            frames.peek().childBytes += frame.bytes;
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getCurrentThreadAllocatedBytes();
+    }
+
+    //the allocation counter is a HotSpot extension, without it allocations are reported as 0
+    private static com.sun.management.ThreadMXBean allocations() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+
+}
@@ -12,6 +12,8 @@ public final class Scope {
     private final Scope parent;
     private final Map<String, Environment.Variable> variables = new HashMap<>();
     private final Map<String, Environment.Function> functions = new HashMap<>();
+    private int functionsVersion = 0; //incremented whenever a function is defined, used to invalidate call site caches
+    private boolean frozen = false; //a frozen scope is only read, so it can be shared between threads
 
     //scope constructor sets scope
     public Scope(Scope parent) {
@@ -23,6 +25,11 @@ public final class Scope {
         return parent;
     }
 
+    //prevents any further definitions in this scope
+    public void freeze() {
+        frozen = true;
+    }
+
     //defines a variables within the invoking scope (all extending/lower scopes will have access)
     public void defineVariable(String name, boolean mutable, Environment.PlcObject value) {
         defineVariable(name, name, Environment.Type.ANY, mutable, value);
@@ -30,7 +37,9 @@ public final class Scope {
 
     //defines a variables within the invoking scope (all parent/higher scopes will have access)
     public Environment.Variable defineVariable(String name, String jvmName, Environment.Type type, boolean mutable, Environment.PlcObject value) {
-        if (variables.containsKey(name)) {
+        if (frozen) {
+            throw new IllegalStateException("The variable " + name + " cannot be defined in a frozen scope.");
+        } else if (variables.containsKey(name)) {
             throw new RuntimeException("The variable " + name + " is already defined in this scope.");
         } else {
             Environment.Variable variable = new Environment.Variable(name, jvmName, type, mutable, value);
@@ -61,15 +70,32 @@ public final class Scope {
 
     //defines a function within the invoking scope (all parent/higher scopes will have access)
     public Environment.Function defineFunction(String name, String jvmName, List<Environment.Type> parameterTypes, Environment.Type returnType, java.util.function.Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
-        if (functions.containsKey(name + "/" + parameterTypes.size())) {
+        if (frozen) {
+            throw new IllegalStateException("The function " + name + "/" + parameterTypes.size() + " cannot be defined in a frozen scope.");
+        } else if (functions.containsKey(name + "/" + parameterTypes.size())) {
             throw new RuntimeException("The function " + name + "/" + parameterTypes.size() + " is already defined in this scope.");
         } else {
             Environment.Function func = new Environment.Function(name, jvmName, parameterTypes, returnType, function);
             functions.put(func.getName() + "/" + func.getParameterTypes().size(), func);
+            functionsVersion++;
             return func;
         }
     }
 
+    //returns a number that changes whenever a function is defined in this scope or any parent scope
+    //(each scope's count only ever increases, so the sum over the chain does as well)
+    public int getFunctionsVersion() {
+        if (parent == null) {
+            return functionsVersion;
+        }
+        return functionsVersion + parent.getFunctionsVersion();
+    }
+
+    //returns whether the function is defined in this scope itself (not looking in parent scopes)
+    public boolean hasFunction(String name, int arity) {
+        return functions.containsKey(name + "/" + arity);
+    }
+
     //looks up a function to see if it exists within the current scope or parent scopes
     public Environment.Function lookupFunction(String name, int arity) {
         if (functions.containsKey(name + "/" + arity)) {
@@ -0,0 +1,231 @@
+package plc.project;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//a source map maps the lines of a generated class back to the source the generator was given, set with Generator.setSourceMap
+//every function and statement parsed from source starts a line of the class that is mapped to its index in the source (Ast.getIndex, the index
+//-of its first token), and every line after it is mapped to the same index until the next mapped line, so a line in the middle of an expression
+//-spanning several lines (or a helper of an outlined function) still maps to the statement it belongs to
+//lines of code that doesn't come from the source (the java main, the frame classes of outlined functions, the exact arithmetic helpers) map to -1
+
+//a map is kept as two sorted arrays and written in a compact text form (see encode), alongside the java files Generator.generate writes
+//the index can be turned into a line and column of the source (see getPosition), which is what the stack traces and profiler frames are rewritten to
+public final class SourceMap {
+
+    private static final String HEADER = "plc-source-map 1";
+    private static final Pattern FRAME = Pattern.compile("\\b([A-Za-z_$][A-Za-z0-9_$]*)\\.java:(\\d+)");
+
+    private final String className;
+    private int[] lines = new int[16]; //lines of the class (starting at 1), in increasing order
+    private int[] indices = new int[16]; //the index in the source each line starts mapping to, -1 for generated code
+    private int size = 0;
+
+    //a map of the lines of the class with the given name, whose frames are in the file className.java
+    public SourceMap(String className) {
+        this.className = className;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    //maps the given line (and the lines after it) to an index in the source, a line mapped twice keeps its first index
+    //lines must be mapped in increasing order, which is the order the generator emits them in
+    void map(int line, int index) {
+
+        if(size > 0 && line <= lines[size - 1]) {
+            if(line < lines[size - 1]) {
+                throw new IllegalArgumentException("Lines must be mapped in increasing order.");
+            }
+            return;
+        } else if(size > 0 && indices[size - 1] == index) {
+            return; //the previous line already maps here
+        }
+
+        if(size == lines.length) {
+            lines = Arrays.copyOf(lines, 2 * size);
+            indices = Arrays.copyOf(indices, 2 * size);
+        }
+        lines[size] = line;
+        indices[size] = index;
+        size++;
+    }
+
+    //maps the lines of another map, moved down by offset lines (so its line 1 is line offset + 1 of this one)
+    void map(SourceMap map, int offset) {
+        for(int i = 0; i < map.size; i++) {
+            map(map.lines[i] + offset, map.indices[i]);
+        }
+    }
+
+    //the index in the source a line of the class maps to, or -1 if it maps to generated code (or comes before any mapped line)
+    public int getIndex(int line) {
+        int i = Arrays.binarySearch(lines, 0, size, line);
+        if(i < 0) {
+            i = -i - 2; //the last mapped line before it
+        }
+        return i < 0 ? -1 : indices[i];
+    }
+
+    //the number of mapped lines (lines where the index changes)
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Positions, an index in the source is turned into its line and column (both starting at 1), where a line ends at a \n, a \r, or a \r\n,
+     * as the lexer treats all three as whitespace.
+     */
+
+    //the line and column of an index in the source, as {line, column}
+    public static int[] getPosition(String source, int index) {
+        return position(lineStarts(source), index);
+    }
+
+    //the indices in the source where each line starts
+    private static int[] lineStarts(String source) {
+
+        int[] starts = new int[16];
+        int count = 1;
+        for(int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if(c == '\n' || (c == '\r' && (i + 1 == source.length() || source.charAt(i + 1) != '\n'))) {
+                if(count == starts.length) {
+                    starts = Arrays.copyOf(starts, 2 * count);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+
+        return Arrays.copyOf(starts, count);
+    }
+
+    private static int[] position(int[] starts, int index) {
+        int line = Arrays.binarySearch(starts, index);
+        if(line < 0) {
+            line = -line - 2;
+        }
+        return new int[] {line + 1, index - starts[line] + 1};
+    }
+
+    /**
+     * Rewriting, the frames of the class in a stack trace (or in the text of a profiler's output) are rewritten to the source they came from,
+     * leaving the frames of every other class, and the lines that map to generated code, as they are.
+     */
+
+    //the stack trace with the frames of the class in the source file sourceName (whose text is source), at the line of the source they map to
+    //a stack trace element has no column, rewrite(String, ...) keeps it
+    public StackTraceElement[] rewrite(StackTraceElement[] trace, String sourceName, String source) {
+        return rewrite(trace, sourceName, lineStarts(source));
+    }
+
+    private StackTraceElement[] rewrite(StackTraceElement[] trace, String sourceName, int[] starts) {
+
+        StackTraceElement[] rewritten = trace.clone();
+        for(int i = 0; i < trace.length; i++) {
+            StackTraceElement element = trace[i];
+            int index = (className + ".java").equals(element.getFileName()) ? getIndex(element.getLineNumber()) : -1;
+            if(index >= 0) {
+                rewritten[i] = new StackTraceElement(element.getClassLoaderName(), element.getModuleName(), element.getModuleVersion(),
+                        element.getClassName(), element.getMethodName(), sourceName, position(starts, index)[0]);
+            }
+        }
+
+        return rewritten;
+    }
+
+    //rewrites the stack traces of a throwable, its causes and the exceptions suppressed by them, in place
+    public void rewrite(Throwable throwable, String sourceName, String source) {
+        rewrite(throwable, sourceName, lineStarts(source), Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private void rewrite(Throwable throwable, String sourceName, int[] starts, Set<Throwable> seen) {
+
+        if(throwable == null || !seen.add(throwable)) {
+            return;
+        }
+
+        throwable.setStackTrace(rewrite(throwable.getStackTrace(), sourceName, starts));
+        rewrite(throwable.getCause(), sourceName, starts, seen);
+        for(Throwable suppressed : throwable.getSuppressed()) {
+            rewrite(suppressed, sourceName, starts, seen);
+        }
+    }
+
+    //rewrites every frame of the class in a text, such as a printed stack trace or a profiler's output, from className.java:line to
+    //-sourceName:line:column
+    public String rewrite(String text, String sourceName, String source) {
+
+        int[] starts = lineStarts(source);
+        Matcher matcher = FRAME.matcher(text);
+        StringBuilder rewritten = new StringBuilder();
+        while(matcher.find()) {
+            int index = matcher.group(1).equals(className) ? getIndex(Integer.parseInt(matcher.group(2))) : -1;
+            if(index >= 0) {
+                int[] position = position(starts, index);
+                matcher.appendReplacement(rewritten, Matcher.quoteReplacement(sourceName + ":" + position[0] + ":" + position[1]));
+            }
+        }
+        matcher.appendTail(rewritten);
+
+        return rewritten.toString();
+    }
+
+    /**
+     * Encoding, a map is written as a header line, the class name, and a single line of the mapped lines as line:index pairs separated by commas,
+     * each line written as its distance from the one before it, which keeps every pair a few characters long.
+     */
+
+    public String encode() {
+
+        StringBuilder encoded = new StringBuilder(HEADER).append('\n').append(className).append('\n');
+        for(int i = 0; i < size; i++) {
+            if(i != 0) {
+                encoded.append(',');
+            }
+            encoded.append(i == 0 ? lines[i] : lines[i] - lines[i - 1]).append(':').append(indices[i]);
+        }
+
+        return encoded.append('\n').toString();
+    }
+
+    public static SourceMap decode(String encoded) {
+
+        String[] parts = encoded.split("\n", -1);
+        if(parts.length < 3 || !parts[0].equals(HEADER)) {
+            throw new IllegalArgumentException("Not a source map.");
+        }
+
+        SourceMap map = new SourceMap(parts[1]);
+        int line = 0;
+        try {
+            for(String pair : parts[2].isEmpty() ? new String[0] : parts[2].split(",")) {
+                int separator = pair.indexOf(':');
+                line += Integer.parseInt(pair.substring(0, separator));
+                map.map(line, Integer.parseInt(pair.substring(separator + 1)));
+            }
+        } catch(IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed source map.", e);
+        }
+
+        return map;
+    }
+
+    public void write(Path file) throws IOException {
+        Files.write(file, encode().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SourceMap read(Path file) throws IOException {
+        return decode(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,183 @@
+package plc.project;
+
+//the specializer is an optimization pass that runs after the analyzer and uses the types it resolved
+//every binary expression is given the Operation specialized to its operand types, which the interpreter then executes
+//-without comparing operator strings or checking the runtime types of the operands
+
+//it walks the whole tree with the same visitor pattern (double dispatch) as the analyzer, interpreter, and generator
+public final class Specializer implements Ast.Visitor<Void> {
+
+    //visits all globals and functions of the source
+    @Override
+    public Void visit(Ast.Source ast) {
+
+        for(Ast.Global global : ast.getGlobals()) {
+            visit(global);
+        }
+        for(Ast.Function function : ast.getFunctions()) {
+            visit(function);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Global ast) {
+
+        if(ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Function ast) {
+
+        for(Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Expression ast) {
+
+        visit(ast.getExpression());
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Declaration ast) {
+
+        if(ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Assignment ast) {
+
+        visit(ast.getReceiver());
+        visit(ast.getValue());
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.If ast) {
+
+        visit(ast.getCondition());
+        for(Ast.Statement statement : ast.getThenStatements()) {
+            visit(statement);
+        }
+        for(Ast.Statement statement : ast.getElseStatements()) {
+            visit(statement);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Switch ast) {
+
+        visit(ast.getCondition());
+        for(Ast.Statement.Case caseStatement : ast.getCases()) {
+            visit(caseStatement);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Case ast) {
+
+        if(ast.getValue().isPresent()) {
+            visit(ast.getValue().get());
+        }
+        for(Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.While ast) {
+
+        visit(ast.getCondition());
+        for(Ast.Statement statement : ast.getStatements()) {
+            visit(statement);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Statement.Return ast) {
+
+        visit(ast.getValue());
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Literal ast) {
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Group ast) {
+
+        visit(ast.getExpression());
+
+        return null;
+    }
+
+    //specializes the operator to the types of both operands (the analyzer has already validated that they are compatible)
+    @Override
+    public Void visit(Ast.Expression.Binary ast) {
+
+        visit(ast.getLeft());
+        visit(ast.getRight());
+
+        ast.setOperation(Operation.specialize(ast.getOperator(), ast.getLeft().getType(), ast.getRight().getType()));
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Access ast) {
+
+        if(ast.getOffset().isPresent()) {
+            visit(ast.getOffset().get());
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.Function ast) {
+
+        for(Ast.Expression argument : ast.getArguments()) {
+            visit(argument);
+        }
+
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expression.PlcList ast) {
+
+        for(Ast.Expression value : ast.getValues()) {
+            visit(value);
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,233 @@
+package plc.project;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.util.List;
+
+//telemetry reports what the compiler stages and the interpreter do, both as Java Flight Recorder events (seen in any recording that
+//-enables them, with their duration) and to the Metrics sink set here
+//when neither is enabled a stage only creates an event (which the JIT removes) and reads the sink, and counting the nodes of a tree,
+//-the one measurement that costs anything, is skipped
+public final class Telemetry {
+
+    private static volatile Metrics metrics = Metrics.NONE;
+
+    private Telemetry() {}
+
+    public static Metrics getMetrics() {
+        return metrics;
+    }
+
+    //sets the sink that receives every measurement from now on, Metrics.NONE to stop
+    public static void setMetrics(Metrics sink) {
+        metrics = sink;
+    }
+
+    @Name("plc.Lex")
+    @Label("Lex")
+    @Category("PLC")
+    static final class LexEvent extends Event {
+
+        @Label("Tokens")
+        int tokens;
+
+        @Label("Failed")
+        boolean failed;
+
+    }
+
+    @Name("plc.Parse")
+    @Label("Parse")
+    @Category("PLC")
+    static final class ParseEvent extends Event {
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Failed")
+        boolean failed;
+
+    }
+
+    @Name("plc.Analyze")
+    @Label("Analyze")
+    @Category("PLC")
+    static final class AnalyzeEvent extends Event {
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Failed")
+        boolean failed;
+
+    }
+
+    @Name("plc.Generate")
+    @Label("Generate")
+    @Category("PLC")
+    static final class GenerateEvent extends Event {
+
+        @Label("Characters")
+        long characters;
+
+        @Label("Failed")
+        boolean failed;
+
+    }
+
+    @Name("plc.Invoke")
+    @Label("Invoke")
+    @Category("PLC")
+    static final class InvokeEvent extends Event {
+
+        @Label("Function")
+        String function;
+
+    }
+
+    /**
+     * Reporting, each stage begins its event and reads the start time before running, and reports both once it is done, from a finally block
+     * so a stage that fails is reported too (its event is marked failed, with what it got through, and the sink is told it failed).
+     */
+
+    static void lexed(LexEvent event, long start, List<Token> tokens, boolean failed) {
+        event.end();
+        if(event.shouldCommit()) {
+            event.tokens = tokens.size();
+            event.failed = failed;
+            event.commit();
+        }
+        Metrics sink = metrics;
+        if(sink != Metrics.NONE && failed) {
+            sink.failed("lex", System.nanoTime() - start);
+        } else if(sink != Metrics.NONE) {
+            sink.lexed(tokens.size(), System.nanoTime() - start);
+        }
+    }
+
+    //the tree is null if parsing failed
+    static void parsed(ParseEvent event, long start, Ast.Source ast) {
+        event.end();
+        Metrics sink = metrics;
+        if(event.shouldCommit() || sink != Metrics.NONE) {
+            int nodes = count(ast);
+            if(event.shouldCommit()) {
+                event.nodes = nodes;
+                event.failed = ast == null;
+                event.commit();
+            }
+            if(ast == null) {
+                sink.failed("parse", System.nanoTime() - start);
+            } else {
+                sink.parsed(nodes, System.nanoTime() - start);
+            }
+        }
+    }
+
+    static void analyzed(AnalyzeEvent event, long start, Ast.Source ast, boolean failed) {
+        event.end();
+        Metrics sink = metrics;
+        if(event.shouldCommit() || sink != Metrics.NONE) {
+            int nodes = count(ast);
+            if(event.shouldCommit()) {
+                event.nodes = nodes;
+                event.failed = failed;
+                event.commit();
+            }
+            if(failed) {
+                sink.failed("analyze", System.nanoTime() - start);
+            } else {
+                sink.analyzed(nodes, System.nanoTime() - start);
+            }
+        }
+    }
+
+    static void generated(GenerateEvent event, long start, long characters, boolean failed) {
+        event.end();
+        if(event.shouldCommit()) {
+            event.characters = characters;
+            event.failed = failed;
+            event.commit();
+        }
+        Metrics sink = metrics;
+        if(sink != Metrics.NONE && failed) {
+            sink.failed("generate", System.nanoTime() - start);
+        } else if(sink != Metrics.NONE) {
+            sink.generated(characters, System.nanoTime() - start);
+        }
+    }
+
+    //calls are far too frequent to read the clock when nothing listens, so the interpreter reads the sink before the call (and only the
+    //-time when there is one) and reports the call to that same sink
+    static void invoked(InvokeEvent event, Metrics sink, long start, String function) {
+        event.end();
+        if(event.shouldCommit()) {
+            event.function = function;
+            event.commit();
+        }
+        if(sink != Metrics.NONE) {
+            sink.invoked(function, System.nanoTime() - start);
+        }
+    }
+
+    //counts the nodes of a tree
+    static int count(Ast ast) {
+
+        int nodes = 1;
+        if(ast instanceof Ast.Source) {
+            for(Ast.Global global : ((Ast.Source) ast).getGlobals()) {
+                nodes += count(global);
+            }
+            for(Ast.Function function : ((Ast.Source) ast).getFunctions()) {
+                nodes += count(function);
+            }
+        } else if(ast instanceof Ast.Global) {
+            nodes += count(((Ast.Global) ast).getValue().orElse(null));
+        } else if(ast instanceof Ast.Function) {
+            nodes += count(((Ast.Function) ast).getStatements());
+        } else if(ast instanceof Ast.Statement.Expression) {
+            nodes += count(((Ast.Statement.Expression) ast).getExpression());
+        } else if(ast instanceof Ast.Statement.Declaration) {
+            nodes += count(((Ast.Statement.Declaration) ast).getValue().orElse(null));
+        } else if(ast instanceof Ast.Statement.Assignment) {
+            nodes += count(((Ast.Statement.Assignment) ast).getReceiver()) + count(((Ast.Statement.Assignment) ast).getValue());
+        } else if(ast instanceof Ast.Statement.If) {
+            Ast.Statement.If statement = (Ast.Statement.If) ast;
+            nodes += count(statement.getCondition()) + count(statement.getThenStatements()) + count(statement.getElseStatements());
+        } else if(ast instanceof Ast.Statement.Switch) {
+            nodes += count(((Ast.Statement.Switch) ast).getCondition()) + count(((Ast.Statement.Switch) ast).getCases());
+        } else if(ast instanceof Ast.Statement.Case) {
+            nodes += count(((Ast.Statement.Case) ast).getValue().orElse(null)) + count(((Ast.Statement.Case) ast).getStatements());
+        } else if(ast instanceof Ast.Statement.While) {
+            nodes += count(((Ast.Statement.While) ast).getCondition()) + count(((Ast.Statement.While) ast).getStatements());
+        } else if(ast instanceof Ast.Statement.Return) {
+            nodes += count(((Ast.Statement.Return) ast).getValue());
+        } else if(ast instanceof Ast.Expression.Group) {
+            nodes += count(((Ast.Expression.Group) ast).getExpression());
+        } else if(ast instanceof Ast.Expression.Binary) {
+            nodes += count(((Ast.Expression.Binary) ast).getLeft()) + count(((Ast.Expression.Binary) ast).getRight());
+        } else if(ast instanceof Ast.Expression.Access) {
+            nodes += count(((Ast.Expression.Access) ast).getOffset().orElse(null));
+        } else if(ast instanceof Ast.Expression.Function) {
+            nodes += count(((Ast.Expression.Function) ast).getArguments());
+        } else if(ast instanceof Ast.Expression.PlcList) {
+            nodes += count(((Ast.Expression.PlcList) ast).getValues());
+        } else if(ast == null) {
+            nodes = 0;
+        }
+
+        return nodes;
+    }
+
+    private static int count(List<? extends Ast> asts) {
+        int nodes = 0;
+        for(Ast ast : asts) {
+            nodes += count(ast);
+        }
+        return nodes;
+    }
+
+}
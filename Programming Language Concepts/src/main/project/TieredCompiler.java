@@ -0,0 +1,407 @@
+package plc.project;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+//the tiered compiler lets an interpreter start running a program right away and still reach the speed of generated code for the functions
+//-that run the most, set with Interpreter.setTieredCompiler
+//every function starts in the interpreter, which counts its calls and the iterations of its loops (back edges), and once the count reaches
+//-the threshold the function is generated (with exact arithmetic, see Generator) and compiled by javac in memory on the executor, while the
+//-interpreter keeps running it; every call made once the compile finished runs the compiled code (there is no on stack replacement,
+//-a call that is already running finishes in the interpreter)
+
+//only pure functions are compiled, as the compiled code can't see the interpreter's scope: functions whose parameters and result are
+//-Integers, Decimals, Booleans, Characters or Strings, which only use their own parameters and variables, and only call themselves and other
+//-pure functions (whose code is compiled along with theirs), so no globals, lists, print or logarithm
+//a call whose compiled code fails (an ArithmeticException from an integer leaving the long range, a division by zero, or any other error)
+//-is deoptimized: it is run again in the interpreter, which computes it with arbitrary precision or fails the way the interpreter fails,
+//-which is safe since a pure function has no effect to repeat
+
+//a tiered compiler belongs to one program, which registers its functions as the interpreter defines them, and may be shared by several
+//-interpreters running that program at once (the counts are racy, which only moves the moment a function gets compiled)
+public final class TieredCompiler {
+
+    public static final int DEFAULT_THRESHOLD = 10_000;
+
+    private static final String CLASS_NAME = "Compiled";
+    private static final List<String> OPTIONS = List.of("-proc:none", "-g:none"); //nothing to process and no one to debug the code
+
+    private enum State {
+        INTERPRETED, COMPILING, COMPILED, FAILED
+    }
+
+    //the counts and compiled code of a pure function
+    public static final class Tier {
+
+        private final TieredCompiler compiler;
+        private final Ast.Function ast;
+        private final List<Ast.Function> callees; //the other functions it calls directly
+        private int count = 0;
+        private volatile State state = State.INTERPRETED;
+        private volatile MethodHandle code = null; //takes the arguments as an Object[], with integers as Longs
+
+        private Tier(TieredCompiler compiler, Ast.Function ast, List<Ast.Function> callees) {
+            this.compiler = compiler;
+            this.ast = ast;
+            this.callees = callees;
+        }
+
+        //counts a back edge of a loop in the function
+        public void backEdge() {
+            if(state == State.INTERPRETED && ++count >= compiler.threshold) {
+                compiler.compile(this);
+            }
+        }
+
+        //runs a call with the compiled code, returning null if the interpreter has to run it (not compiled yet, or deoptimized)
+        public Environment.PlcObject invoke(List<Environment.PlcObject> arguments) {
+
+            MethodHandle compiled = code;
+            if(compiled == null) {
+                backEdge(); //a call counts the same as a back edge
+                return null;
+            }
+
+            Object[] values = new Object[arguments.size()];
+            for(int i = 0; i < values.length; i++) {
+                Object value = arguments.get(i).getValue();
+                if(value instanceof BigInteger) {
+                    if(((BigInteger) value).bitLength() >= Long.SIZE) {
+                        compiler.deoptimizations.incrementAndGet();
+                        return null;
+                    }
+                    value = ((BigInteger) value).longValue();
+                }
+                values[i] = value;
+            }
+
+            Object result;
+            try {
+                result = (Object) compiled.invokeExact(values);
+            } catch(Error e) {
+                throw e;
+            } catch(Throwable e) {
+                compiler.deoptimizations.incrementAndGet();
+                return null;
+            }
+
+            return Environment.create(result instanceof Long ? BigInteger.valueOf((Long) result) : result);
+        }
+
+    }
+
+    private final int threshold;
+    private final Executor executor;
+    private final Map<String, Tier> tiers = new ConcurrentHashMap<>(); //the pure functions, by name/arity
+    private final AtomicLong deoptimizations = new AtomicLong();
+
+    public TieredCompiler() {
+        this(DEFAULT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    //compiler of functions whose count reaches threshold, on the given executor (which can run them on the calling thread, Runnable::run)
+    public TieredCompiler(int threshold, Executor executor) {
+        if(threshold < 1) {
+            throw new IllegalArgumentException("The threshold must be positive.");
+        }
+        this.threshold = threshold;
+        this.executor = executor;
+    }
+
+    //registers a function the interpreter is defining, returning its tier or null if it is never compiled (it isn't pure)
+    //the functions it calls must have been registered before it, which they are since a function can only call the functions before it
+    //another interpreter running the same tree gets the same tier, sharing its count and compiled code
+    public Tier define(Ast.Function ast) {
+
+        Tier defined = tiers.get(key(ast));
+        if(defined != null && defined.ast == ast) {
+            return defined;
+        }
+
+        List<Ast.Function> callees = new ArrayList<>();
+        if(!isPure(ast, callees)) {
+            return null;
+        }
+
+        Tier tier = new Tier(this, ast, callees);
+        tiers.put(key(ast), tier);
+
+        return tier;
+    }
+
+    //whether the function's calls now run its compiled code
+    public boolean isCompiled(Ast.Function ast) {
+        Tier tier = tiers.get(key(ast));
+        return tier != null && tier.ast == ast && tier.state == State.COMPILED;
+    }
+
+    //the number of calls the compiled code failed, which the interpreter ran again
+    public long getDeoptimizations() {
+        return deoptimizations.get();
+    }
+
+    //starts compiling a function, unless another thread (or count) already started
+    private void compile(Tier tier) {
+
+        synchronized(tier) {
+            if(tier.state != State.INTERPRETED) {
+                return;
+            }
+            tier.state = State.COMPILING;
+        }
+
+        executor.execute(() -> {
+            try {
+                tier.code = load(tier);
+                tier.state = State.COMPILED;
+            } catch(RuntimeException | ReflectiveOperationException | LinkageError e) {
+                tier.state = State.FAILED; //the function stays in the interpreter
+            }
+        });
+    }
+
+    /**
+     * Purity, whether a function can be compiled on its own, looked at once when the function is defined.
+     */
+
+    private boolean isPure(Ast.Function ast, List<Ast.Function> callees) {
+
+        if(!isCompilable(ast.getFunction().getReturnType())) {
+            return false;
+        }
+        for(Environment.Type type : ast.getFunction().getParameterTypes()) {
+            if(!isCompilable(type)) {
+                return false;
+            }
+        }
+
+        return isPure(ast.getStatements(), ast, Collections.newSetFromMap(new IdentityHashMap<>()), callees);
+    }
+
+    private static boolean isCompilable(Environment.Type type) {
+        return type.equals(Environment.Type.INTEGER) || type.equals(Environment.Type.DECIMAL) || type.equals(Environment.Type.BOOLEAN)
+                || type.equals(Environment.Type.CHARACTER) || type.equals(Environment.Type.STRING);
+    }
+
+    private boolean isPure(List<? extends Ast.Statement> statements, Ast.Function function, Set<Environment.Variable> locals, List<Ast.Function> callees) {
+
+        for(Ast.Statement statement : statements) {
+            if(statement instanceof Ast.Statement.Expression) {
+                if(!isPure(((Ast.Statement.Expression) statement).getExpression(), function, locals, callees)) {
+                    return false;
+                }
+            } else if(statement instanceof Ast.Statement.Declaration) {
+                Ast.Statement.Declaration declaration = (Ast.Statement.Declaration) statement;
+                if(!isCompilable(declaration.getVariable().getType())
+                        || (declaration.getValue().isPresent() && !isPure(declaration.getValue().get(), function, locals, callees))) {
+                    return false;
+                }
+                locals.add(declaration.getVariable());
+            } else if(statement instanceof Ast.Statement.Assignment) {
+                if(!isPure(((Ast.Statement.Assignment) statement).getReceiver(), function, locals, callees)
+                        || !isPure(((Ast.Statement.Assignment) statement).getValue(), function, locals, callees)) {
+                    return false;
+                }
+            } else if(statement instanceof Ast.Statement.If) {
+                Ast.Statement.If ifStatement = (Ast.Statement.If) statement;
+                if(!isPure(ifStatement.getCondition(), function, locals, callees) || !isPure(ifStatement.getThenStatements(), function, locals, callees)
+                        || !isPure(ifStatement.getElseStatements(), function, locals, callees)) {
+                    return false;
+                }
+            } else if(statement instanceof Ast.Statement.Switch) {
+                if(!isPure(((Ast.Statement.Switch) statement).getCondition(), function, locals, callees)
+                        || !isPure(((Ast.Statement.Switch) statement).getCases(), function, locals, callees)) {
+                    return false;
+                }
+            } else if(statement instanceof Ast.Statement.Case) {
+                Ast.Statement.Case caseStatement = (Ast.Statement.Case) statement;
+                if((caseStatement.getValue().isPresent() && !isPure(caseStatement.getValue().get(), function, locals, callees))
+                        || !isPure(caseStatement.getStatements(), function, locals, callees)) {
+                    return false;
+                }
+            } else if(statement instanceof Ast.Statement.While) {
+                if(!isPure(((Ast.Statement.While) statement).getCondition(), function, locals, callees)
+                        || !isPure(((Ast.Statement.While) statement).getStatements(), function, locals, callees)) {
+                    return false;
+                }
+            } else if(statement instanceof Ast.Statement.Return) {
+                if(!isPure(((Ast.Statement.Return) statement).getValue(), function, locals, callees)) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean isPure(Ast.Expression expression, Ast.Function function, Set<Environment.Variable> locals, List<Ast.Function> callees) {
+
+        if(expression instanceof Ast.Expression.Literal) {
+            return ((Ast.Expression.Literal) expression).getLiteral() != null;
+        } else if(expression instanceof Ast.Expression.Group) {
+            return isPure(((Ast.Expression.Group) expression).getExpression(), function, locals, callees);
+        } else if(expression instanceof Ast.Expression.Binary) {
+            return isPure(((Ast.Expression.Binary) expression).getLeft(), function, locals, callees)
+                    && isPure(((Ast.Expression.Binary) expression).getRight(), function, locals, callees);
+        } else if(expression instanceof Ast.Expression.Access) {
+            //a parameter shadows any global of its name, so an access by its name is always the parameter
+            Ast.Expression.Access access = (Ast.Expression.Access) expression;
+            return access.getOffset().isEmpty()
+                    && (locals.contains(access.getVariable()) || function.getParameters().contains(access.getName()));
+        } else if(expression instanceof Ast.Expression.Function) {
+            Ast.Expression.Function call = (Ast.Expression.Function) expression;
+            String key = call.getName() + "/" + call.getArguments().size();
+            if(!key.equals(key(function))) {
+                Tier callee = tiers.get(key);
+                if(callee == null) {
+                    return false;
+                }
+                callees.add(callee.ast);
+            }
+            for(Ast.Expression argument : call.getArguments()) {
+                if(!isPure(argument, function, locals, callees)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    private static String key(Ast.Function ast) {
+        return ast.getName() + "/" + ast.getParameters().size();
+    }
+
+    /**
+     * Compiling, the function and every function it calls (directly or not) are generated into a class, compiled with javac into class files
+     * kept in memory, and loaded by a class loader of their own.
+     */
+
+    //compiles a function, returning the handle that calls it with its arguments in an Object[]
+    private static MethodHandle load(Tier tier) throws ReflectiveOperationException {
+
+        Set<Ast.Function> functions = Collections.newSetFromMap(new IdentityHashMap<>());
+        collect(tier, functions);
+
+        Class<?> type = compile(CLASS_NAME, Generator.generateClass(CLASS_NAME, new ArrayList<>(functions)));
+        Object instance = type.getDeclaredConstructor().newInstance();
+
+        Environment.Function function = tier.ast.getFunction();
+        Class<?>[] parameters = new Class<?>[function.getArity()];
+        for(int i = 0; i < parameters.length; i++) {
+            parameters[i] = javaType(function.getParameterTypes().get(i));
+        }
+        Method method = type.getDeclaredMethod(function.getJvmName(), parameters);
+        method.setAccessible(true);
+
+        return MethodHandles.lookup().unreflect(method).bindTo(instance)
+                .asSpreader(Object[].class, parameters.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+    }
+
+    private static void collect(Tier tier, Set<Ast.Function> functions) {
+        if(functions.add(tier.ast)) {
+            for(Ast.Function callee : tier.callees) {
+                collect(tier.compiler.tiers.get(key(callee)), functions);
+            }
+        }
+    }
+
+    //the java type of a compilable type in the code Generator.generateClass generates
+    private static Class<?> javaType(Environment.Type type) {
+        if(type.equals(Environment.Type.INTEGER)) {
+            return long.class;
+        } else if(type.equals(Environment.Type.DECIMAL)) {
+            return BigDecimal.class;
+        } else if(type.equals(Environment.Type.BOOLEAN)) {
+            return boolean.class;
+        } else if(type.equals(Environment.Type.CHARACTER)) {
+            return char.class;
+        }
+        return String.class;
+    }
+
+    //compiles a class (and its nested classes) in memory, throwing if there is no compiler (a JRE without the jdk.compiler module) or it fails
+    private static Class<?> compile(String name, String code) throws ClassNotFoundException {
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if(compiler == null) {
+            throw new IllegalStateException("No Java compiler available.");
+        }
+
+        Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+        StandardJavaFileManager standard = compiler.getStandardFileManager(null, null, null);
+        JavaFileManager files = new ForwardingJavaFileManager<JavaFileManager>(standard) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("memory:///" + className.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        classes.put(className, bytes);
+                        return bytes;
+                    }
+                };
+            }
+        };
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("memory:///" + name + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+
+        try(JavaFileManager closing = files) {
+            if(!compiler.getTask(Writer.nullWriter(), closing, diagnostic -> {}, OPTIONS, null, List.of(source)).call()) {
+                throw new IllegalStateException("The generated code doesn't compile.");
+            }
+        } catch(IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        ClassLoader loader = new ClassLoader(TieredCompiler.class.getClassLoader()) {
+            @Override
+            protected Class<?> findClass(String className) throws ClassNotFoundException {
+                ByteArrayOutputStream bytes = classes.get(className);
+                if(bytes == null) {
+                    throw new ClassNotFoundException(className);
+                }
+                return defineClass(className, bytes.toByteArray(), 0, bytes.size());
+            }
+        };
+
+        return loader.loadClass(name);
+    }
+
+}
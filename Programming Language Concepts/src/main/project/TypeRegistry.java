@@ -0,0 +1,29 @@
+package plc.project;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//a type registry holds the types of one compilation session, on top of the built in and globally registered types of Environment
+//types registered in a session are only visible to the analyzers using that registry, so sessions (possibly running on different threads)
+//-can each register their own types, even ones with the same name, without seeing each other's
+public final class TypeRegistry {
+
+    private final Map<String, Environment.Type> types = new ConcurrentHashMap<>();
+
+    //gets the type from the string name, looking in this session first and then in Environment
+    public Environment.Type getType(String name) {
+        Environment.Type type = types.get(name);
+        if (type != null) {
+            return type;
+        }
+        return Environment.getType(name);
+    }
+
+    //registers a type for this session only, it can't shadow a built in or globally registered type
+    public void registerType(Environment.Type type) {
+        if (Environment.hasType(type.getName()) || types.putIfAbsent(type.getName(), type) != null) {
+            throw new IllegalArgumentException("Duplicate registration of type " + type.getName() + ".");
+        }
+    }
+
+}
@@ -527,6 +527,41 @@ public final class AnalyzerTests {
         );
     }
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    public void testParallelSource(String test, String source) {
+        Ast.Source sequential = new Parser(new Lexer(source).lex()).parseSource();
+        Ast.Source parallel = new Parser(new Lexer(source).lex()).parseSource();
+        RuntimeException sequentialError = null;
+        try {
+            new Analyzer(new Scope(null)).visit(sequential);
+        } catch (RuntimeException e) {
+            sequentialError = e;
+        }
+        if (sequentialError == null) {
+            new Analyzer(new Scope(null)).visitParallel(parallel);
+            Assertions.assertEquals(sequential, parallel);
+            for (int i = 0; i < sequential.getFunctions().size(); i++) {
+                Assertions.assertEquals(sequential.getFunctions().get(i).getFunction(), parallel.getFunctions().get(i).getFunction());
+            }
+        } else {
+            RuntimeException parallelError = Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visitParallel(parallel));
+            Assertions.assertEquals(sequentialError.getMessage(), parallelError.getMessage());
+        }
+    }
+
+    private static Stream<Arguments> testParallelSource() {
+        return Stream.of(
+                Arguments.of("Functions", "VAR x: Integer = 1; FUN f(a: Integer): Integer DO RETURN a + x; END FUN g(): Decimal DO RETURN 1.5; END FUN main(): Integer DO RETURN f(2); END"),
+                Arguments.of("Recursion", "FUN f(n: Integer): Integer DO IF n < 1 DO RETURN 0; END RETURN f(n - 1); END FUN main(): Integer DO RETURN f(3); END"),
+                Arguments.of("Later Function", "FUN main(): Integer DO RETURN f(); END FUN f(): Integer DO RETURN 1; END"),
+                Arguments.of("First Error", "FUN f(): Integer DO RETURN 'c'; END FUN g(): Integer DO RETURN undefined; END FUN main(): Integer DO RETURN 0; END"),
+                Arguments.of("Duplicate", "FUN f() DO END FUN f() DO END FUN main(): Integer DO RETURN 0; END"),
+                Arguments.of("Body Error Before Signature Error", "FUN f(): Integer DO RETURN 'c'; END FUN g(): Unknown DO END FUN main(): Integer DO RETURN 0; END"),
+                Arguments.of("Missing Main", "FUN f() DO END")
+        );
+    }
+
     /**
      * Helper function for tests. If {@param expected} is {@code null}, analysis
      * is expected to throw a {@link RuntimeException}.
@@ -0,0 +1,84 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+final class BatchCompilerTests {
+
+    @Test
+    void testBatch(@TempDir Path directory) throws IOException, InterruptedException {
+        List<Path> sources = new ArrayList<>();
+        List<String> programs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String program = i == 7
+                    ? "FUN main(): Integer DO RETURN 'c'; END"
+                    : "VAR x: Integer = " + i + "; FUN main(): Integer DO print(x * 2); RETURN 0; END";
+            Path source = directory.resolve("program" + i + ".plc");
+            Files.writeString(source, program);
+            sources.add(source);
+            programs.add(program);
+        }
+        sources.add(directory.resolve("missing.plc"));
+
+        BatchCompiler compiler = new BatchCompiler(2);
+        List<BatchCompiler.Result> results = compiler.compile(sources);
+
+        Assertions.assertEquals(sources.size(), results.size());
+        for (int i = 0; i < programs.size(); i++) {
+            Assertions.assertEquals(sources.get(i), results.get(i).getSource());
+            if (i == 7) {
+                Assertions.assertNull(results.get(i).getGenerated());
+                Assertions.assertNotNull(results.get(i).getError());
+            } else {
+                Assertions.assertNull(results.get(i).getError());
+                Assertions.assertEquals(generate(programs.get(i)), results.get(i).getGenerated());
+            }
+        }
+        Assertions.assertNotNull(results.get(programs.size()).getError());
+
+        Map<BatchCompiler.Stage, Long> timings = compiler.getStageNanos();
+        for (BatchCompiler.Stage stage : BatchCompiler.Stage.values()) {
+            Assertions.assertTrue(timings.get(stage) > 0);
+        }
+    }
+
+    @Test
+    void testStageFailure(@TempDir Path directory) throws IOException {
+        //a path that throws an Error when it is read kills the lex stage, which must stop the whole batch instead of hanging it
+        List<Path> sources = new ArrayList<>();
+        sources.add((Path) Proxy.newProxyInstance(Path.class.getClassLoader(), new Class<?>[] {Path.class}, (proxy, method, args) -> {
+            throw new AssertionError("unreadable");
+        }));
+        for (int i = 0; i < 10; i++) {
+            Path source = directory.resolve("program" + i + ".plc");
+            Files.writeString(source, "FUN main(): Integer DO RETURN 0; END");
+            sources.add(source);
+        }
+
+        BatchCompiler compiler = new BatchCompiler(1);
+        AssertionError error = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> Assertions.assertThrows(AssertionError.class, () -> compiler.compile(sources)));
+        Assertions.assertEquals("unreadable", error.getMessage());
+    }
+
+    private static String generate(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+}
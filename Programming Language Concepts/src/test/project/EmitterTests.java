@@ -0,0 +1,83 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+final class EmitterTests {
+
+    private static final String SOURCE = String.join("\n",
+            "VAR name: String = \"h\u00e9llo w\u00f6rld \ud83d\ude00\";",
+            "LIST values: Integer = [1, 2, 3];",
+            "FUN greet(n: Integer): Integer DO",
+            "    WHILE n > 0 DO",
+            "        IF n == 2 DO print(name); ELSE print('\u00e7'); END",
+            "        n = n - 1;",
+            "    END",
+            "    RETURN values[0];",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN greet(3);",
+            "END"
+    );
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 16, Emitter.DEFAULT_CHUNK_SIZE})
+    void testWriter(int chunkSize) {
+        StringWriter writer = new StringWriter();
+        new Generator(new Emitter(writer, chunkSize)).visit(analyze());
+        Assertions.assertEquals(expected(), writer.toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 16, Emitter.DEFAULT_CHUNK_SIZE})
+    void testChannel(int chunkSize) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Generator(new Emitter(Channels.newChannel(out), chunkSize)).visit(analyze());
+        Assertions.assertEquals(expected(), out.toString(StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 16, Emitter.DEFAULT_CHUNK_SIZE})
+    void testByteBuffer(int chunkSize) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+        new Generator(new Emitter(buffer, chunkSize)).visit(analyze());
+        buffer.flip();
+        Assertions.assertEquals(expected(), StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 7})
+    void testNewline(int indent) {
+        StringWriter writer = new StringWriter();
+        Emitter emitter = new Emitter(writer, 2);
+        emitter.append("x");
+        emitter.newline(indent);
+        emitter.append('y');
+        emitter.flush();
+        Assertions.assertEquals("x" + System.lineSeparator() + "    ".repeat(indent) + "y", writer.toString());
+        Assertions.assertEquals(writer.toString().length(), emitter.getWritten());
+    }
+
+    private static Ast.Source analyze() {
+        Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    //the code the generator printed straight to a PrintWriter before it had an emitter
+    private static String expected() {
+        StringWriter writer = new StringWriter();
+        PrintWriter printer = new PrintWriter(writer);
+        new Generator(printer).visit(analyze());
+        return writer.toString();
+    }
+
+}
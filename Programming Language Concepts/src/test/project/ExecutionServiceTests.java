@@ -0,0 +1,61 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+final class ExecutionServiceTests {
+
+    @Test
+    void testSharedSource() throws InterruptedException, ExecutionException {
+        Ast.Source ast = new Parser(new Lexer(String.join("\n",
+                "VAR calls: Integer = 0;",
+                "FUN fib(n: Integer): Integer DO",
+                "    calls = calls + 1;",
+                "    IF n < 2 DO RETURN n; END",
+                "    RETURN fib(n - 1) + fib(n - 2);",
+                "END",
+                "FUN main(): Integer DO",
+                "    LET result = fib(15);",
+                "    print(calls);",
+                "    RETURN result;",
+                "END"
+        )).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+
+        List<ByteArrayOutputStream> outputs = new ArrayList<>();
+        List<Future<Environment.PlcObject>> results = new ArrayList<>();
+        try (ExecutionService service = new ExecutionService()) {
+            for (int i = 0; i < 32; i++) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                outputs.add(output);
+                results.add(service.submit(ast, new PrintStream(output)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                Assertions.assertEquals(BigInteger.valueOf(610), results.get(i).get().getValue());
+            }
+        }
+        for (ByteArrayOutputStream output : outputs) {
+            Assertions.assertEquals("1973" + System.lineSeparator(), output.toString());
+        }
+    }
+
+    @Test
+    void testError() {
+        Ast.Source ast = new Parser(new Lexer("FUN main(): Integer DO RETURN 1 / 0; END").lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+
+        try (ExecutionService service = new ExecutionService()) {
+            Future<Environment.PlcObject> result = service.submit(ast);
+            Assertions.assertThrows(ExecutionException.class, result::get);
+        }
+    }
+
+}
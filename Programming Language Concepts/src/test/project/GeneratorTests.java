@@ -3,20 +3,35 @@ package plc.project;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Tags;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.math.BigDecimal;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
 public class GeneratorTests {
 
     @ParameterizedTest(name = "{0}")
@@ -194,6 +209,7 @@ public class GeneratorTests {
                                 "    case 'y':",
                                 "        System.out.println(\"yes\");",
                                 "        letter = 'n';",
+                                "        break;",
                                 "    default:",
                                 "        System.out.println(\"no\");",
                                 "}"
@@ -225,6 +241,22 @@ public class GeneratorTests {
                                 init(new Ast.Expression.Literal(BigInteger.TEN), ast -> ast.setType(Environment.Type.INTEGER))
                         ), ast -> ast.setType(Environment.Type.STRING)),
                         "\"Ben\" + 10"
+                ),
+                Arguments.of("Integer Exponent",
+                        // 2 ^ 3
+                        init(new Ast.Expression.Binary("^",
+                                init(new Ast.Expression.Literal(BigInteger.valueOf(2)), ast -> ast.setType(Environment.Type.INTEGER)),
+                                init(new Ast.Expression.Literal(BigInteger.valueOf(3)), ast -> ast.setType(Environment.Type.INTEGER))
+                        ), ast -> ast.setType(Environment.Type.INTEGER)),
+                        "(int) Math.pow(2, 3)"
+                ),
+                Arguments.of("Decimal Exponent",
+                        // 2.0 ^ 3
+                        init(new Ast.Expression.Binary("^",
+                                init(new Ast.Expression.Literal(new BigDecimal("2.0")), ast -> ast.setType(Environment.Type.DECIMAL)),
+                                init(new Ast.Expression.Literal(BigInteger.valueOf(3)), ast -> ast.setType(Environment.Type.INTEGER))
+                        ), ast -> ast.setType(Environment.Type.DECIMAL)),
+                        "Math.pow(2.0, 3)"
                 )
         );
     }
@@ -247,6 +279,350 @@ public class GeneratorTests {
         );
     }
 
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testParallelSource(String test, String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter sequential = new StringWriter();
+        new Generator(new PrintWriter(sequential)).visit(ast);
+        StringWriter parallel = new StringWriter();
+        new Generator(new PrintWriter(parallel)).visitParallel(ast);
+        Assertions.assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    private static Stream<Arguments> testParallelSource() {
+        StringBuilder many = new StringBuilder("LIST values: Integer = [1, 2, 3];");
+        for (int i = 0; i < 200; i++) {
+            many.append(" FUN f").append(i).append("(n: Integer): Integer DO WHILE n > ").append(i).append(" DO n = n - 1; END RETURN n + values[0]; END");
+        }
+        many.append(" FUN main(): Integer DO RETURN f199(3); END");
+        return Stream.of(
+                Arguments.of("Main Only", "FUN main(): Integer DO RETURN 0; END"),
+                Arguments.of("Globals", "VAR x: Integer = 1; VAL y: Decimal = 2.0; FUN main(): Integer DO print(x); RETURN 0; END"),
+                Arguments.of("Many Functions", many.toString())
+        );
+    }
+
+    @Test
+    void testGenerateFile(@TempDir Path directory) throws IOException {
+        Ast.Source ast = analyze(program(20));
+        Path file = directory.resolve("Main.java");
+        Generator.generate(ast, file);
+        Assertions.assertEquals(generate(ast), Files.readString(file));
+    }
+
+    @Test
+    void testGenerateSingleUnit(@TempDir Path directory) throws IOException {
+        Ast.Source ast = analyze(program(20));
+        List<Path> files = Generator.generate(ast, directory, Long.MAX_VALUE);
+        Assertions.assertEquals(List.of(directory.resolve("Main.java")), files);
+        Assertions.assertEquals(generate(ast), Files.readString(files.get(0)));
+    }
+
+    @Test
+    void testGenerateUnits(@TempDir Path directory) throws Exception {
+        Ast.Source ast = analyze(program(20));
+        List<Path> files = Generator.generate(ast, directory, 500);
+        Assertions.assertTrue(files.size() > 2, files.toString());
+        Assertions.assertEquals(directory.resolve("MainPart1.java"), files.get(0));
+        Assertions.assertEquals(directory.resolve("Main.java"), files.get(files.size() - 1));
+        Assertions.assertTrue(Files.readString(files.get(1)).startsWith("public class MainPart2 extends MainPart1 {"));
+
+        Assertions.assertEquals(19 + 19 * 2, run(directory, files));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testOutlinedFunction(String test, long methodSize, int helpers, @TempDir Path directory) throws Exception {
+        StringBuilder source = new StringBuilder("VAR total: Integer = 0;");
+        source.append(" FUN f(n: Integer): Integer DO LET a = n; LET b: Integer;");
+        for (int i = 0; i < 10; i++) {
+            source.append(" a = a + ").append(i).append(";");
+        }
+        source.append(" IF a > 1000 DO RETURN 0; END b = a * 2;");
+        source.append(" WHILE b > 90 DO LET c = b; b = c - 1; total = total + 1; END");
+        source.append(" RETURN a + b; END");
+        source.append(" FUN main(): Integer DO RETURN f(1) + total; END");
+        Ast.Source ast = analyze(source.toString());
+
+        StringWriter writer = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(writer));
+        generator.setMethodSize(methodSize);
+        generator.visit(ast);
+        Assertions.assertEquals(helpers, writer.toString().split("f\\$1\\$helper[0-9]+\\(f\\$1\\$Frame").length - 1, writer.toString());
+
+        Path file = directory.resolve("Main.java");
+        Files.writeString(file, writer.toString());
+        Object expected = new Interpreter(new Scope(null)).visit(ast).getValue();
+        Assertions.assertEquals(((BigInteger) expected).intValue(), run(directory, List.of(file)));
+    }
+
+    private static Stream<Arguments> testOutlinedFunction() {
+        return Stream.of(
+                Arguments.of("Not Outlined", Generator.DEFAULT_METHOD_SIZE, 0),
+                Arguments.of("Helpers", 40, 2),
+                Arguments.of("Statement Per Method", 1, 14)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testOutlinedOptimized(String test, UnaryOperator<Ast.Source> optimizer, @TempDir Path directory) throws Exception {
+        //an optimized tree keeps the parameters' variables the frame of an outlined function is built from
+        Ast.Source ast = optimizer.apply(analyze("FUN f(n: Integer): Integer DO LET a = n + 1; LET i = 0; " +
+                "WHILE i < 3 DO LET k = 2 * 3; a = a + k; i = i + 1; END a = a * n; RETURN a + n; END " +
+                "FUN main(): Integer DO RETURN f(2); END"));
+
+        StringWriter writer = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(writer));
+        generator.setMethodSize(3);
+        generator.visit(ast);
+        Assertions.assertTrue(writer.toString().contains("f$1$helper1(f$1$Frame"), writer.toString());
+
+        Path file = directory.resolve("Main.java");
+        Files.writeString(file, writer.toString());
+        Object expected = new Interpreter(new Scope(null)).visit(ast).getValue();
+        Assertions.assertEquals(((BigInteger) expected).intValue(), run(directory, List.of(file)));
+    }
+
+    private static Stream<Arguments> testOutlinedOptimized() {
+        return Stream.of(
+                Arguments.of("Optimizer", (UnaryOperator<Ast.Source>) ast -> new Optimizer().visit(ast)),
+                Arguments.of("Loop Optimizer", (UnaryOperator<Ast.Source>) ast -> new LoopOptimizer().visit(ast))
+        );
+    }
+
+    @Test
+    void testOutlinedShadowing(@TempDir Path directory) throws Exception {
+        //the nested declarations of x are variables of their own, not the parameter x in the frame
+        Ast.Source ast = analyze("VAR total: Integer = 0; " +
+                "FUN f(x: Integer): Integer DO " +
+                "IF x > 0 DO LET x = 5; total = total + x; END " +
+                "IF x > 0 DO LET x: Integer; x = 7; total = total + x; END " +
+                "total = total + x; " +
+                "RETURN x; END " +
+                "FUN main(): Integer DO RETURN f(1) * 100 + total; END");
+
+        StringWriter writer = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(writer));
+        generator.setMethodSize(5);
+        generator.visit(ast);
+        Assertions.assertTrue(writer.toString().contains("f$1$helper1(f$1$Frame"), writer.toString());
+        //only the method itself returns, so the frame has no result
+        Assertions.assertFalse(writer.toString().contains("$result"), writer.toString());
+
+        Path file = directory.resolve("Main.java");
+        Files.writeString(file, writer.toString());
+        Object expected = new Interpreter(new Scope(null)).visit(ast).getValue();
+        Assertions.assertEquals(BigInteger.valueOf(113), expected);
+        Assertions.assertEquals(113, run(directory, List.of(file)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testExactArithmetic(String test, String source, @TempDir Path directory) throws Exception {
+        Ast.Source ast = analyze(source);
+        ByteArrayOutputStream interpreted = new ByteArrayOutputStream();
+        Object expected = new Interpreter(new Scope(null), new PrintStream(interpreted, true)).visit(ast).getValue();
+
+        StringWriter writer = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(writer));
+        generator.setExactArithmetic(true);
+        generator.visit(ast);
+        Path file = directory.resolve("Main.java");
+        Files.writeString(file, writer.toString());
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream generated = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(generated, true));
+        try {
+            Assertions.assertEquals(((BigInteger) expected).longValueExact(), run(directory, List.of(file)));
+        } finally {
+            System.setOut(out);
+        }
+        Assertions.assertEquals(interpreted.toString(), generated.toString());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSwitchLowering(String test, String source, @TempDir Path directory) throws Exception {
+        Ast.Source ast = analyze(source);
+        ByteArrayOutputStream interpreted = new ByteArrayOutputStream();
+        new Interpreter(new Scope(null), new PrintStream(interpreted, true)).visit(ast);
+
+        for (boolean exact : List.of(false, true)) {
+            StringWriter writer = new StringWriter();
+            Generator generator = new Generator(new PrintWriter(writer));
+            generator.setExactArithmetic(exact);
+            generator.visit(ast);
+            Path file = directory.resolve("Main.java");
+            Files.writeString(file, writer.toString());
+
+            PrintStream out = System.out;
+            ByteArrayOutputStream generated = new ByteArrayOutputStream();
+            System.setOut(new PrintStream(generated, true));
+            try {
+                run(directory, List.of(file));
+            } finally {
+                System.setOut(out);
+            }
+            Assertions.assertEquals(interpreted.toString(), generated.toString(), writer.toString());
+        }
+    }
+
+    private static Stream<Arguments> testSwitchLowering() {
+        return Stream.of(
+                Arguments.of("Integers", "FUN main(): Integer DO LET i = 0; WHILE i < 5 DO SWITCH i CASE 1: print(\"one\"); CASE 3: print(\"three\"); DEFAULT print(i); END i = i + 1; END RETURN 0; END"),
+                Arguments.of("Returning Cases", "FUN name(c: Character): String DO SWITCH c CASE 'a': RETURN \"a\"; CASE 'b': IF c == 'b' DO RETURN \"b\"; ELSE RETURN \"?\"; END DEFAULT RETURN \"other\"; END END " +
+                        "FUN main(): Integer DO print(name('a')); print(name('b')); print(name('z')); RETURN 0; END"),
+                Arguments.of("Strings", "FUN main(): Integer DO SWITCH \"b\" CASE \"a\": print(1); CASE \"b\": print(2); DEFAULT print(0); END RETURN 0; END"),
+                Arguments.of("Duplicate Case", "FUN main(): Integer DO SWITCH 1 CASE 1: print(\"first\"); CASE 1: print(\"second\"); DEFAULT print(0); END RETURN 0; END"),
+                Arguments.of("Expression Case", "VAR calls: Integer = 0; FUN next(): Integer DO calls = calls + 1; RETURN 2; END " +
+                        "FUN main(): Integer DO LET x = 1; SWITCH next() CASE x: print(1); CASE x + 1: print(2); DEFAULT print(0); END print(calls); RETURN 0; END"),
+                Arguments.of("Booleans", "FUN main(): Integer DO SWITCH 1 < 2 CASE FALSE: print(0); DEFAULT print(1); END RETURN 0; END"),
+                Arguments.of("Decimals", "FUN main(): Integer DO SWITCH 1.5 CASE 1.0: print(0); CASE 1.5: SWITCH 2 CASE 2: print(2); DEFAULT print(3); END DEFAULT print(1); END RETURN 0; END"),
+                Arguments.of("Only Default", "FUN main(): Integer DO SWITCH 1.5 DEFAULT print(1); END RETURN 0; END")
+        );
+    }
+
+    @Test
+    void testTailCallLoop() {
+        Ast.Source ast = analyze("FUN sum(n: Integer, total: Integer): Integer DO IF n == 0 DO RETURN total; END RETURN sum(n - 1, total + n); END " +
+                "FUN last(n: Integer, total: Integer): Integer DO RETURN last(n - 1, total); END FUN main(): Integer DO RETURN 0; END");
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "int sum(int n, int total) {",
+                "        $tail: while (true) {",
+                "            if (n == 0) {",
+                "                return total;",
+                "            }",
+                "            {",
+                "                int $n = n - 1;",
+                "                int $total = total + n;",
+                "                n = $n;",
+                "                total = $total;",
+                "                continue $tail;",
+                "            }",
+                "        }",
+                "    }"
+        ), Generator.generateFunction(ast.getFunctions().get(0)));
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "int last(int n, int total) {",
+                "        $tail: while (true) {",
+                "            {",
+                "                n = n - 1;",
+                "                continue $tail;",
+                "            }",
+                "        }",
+                "    }"
+        ), Generator.generateFunction(ast.getFunctions().get(1)));
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testTailCall(String test, String source, @TempDir Path directory) throws Exception {
+        Ast.Source ast = analyze(source);
+        ByteArrayOutputStream interpreted = new ByteArrayOutputStream();
+        new Interpreter(new Scope(null), new PrintStream(interpreted, true)).visit(ast);
+
+        StringWriter writer = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(writer));
+        generator.setExactArithmetic(true);
+        generator.visit(ast);
+        Path file = directory.resolve("Main.java");
+        Files.writeString(file, writer.toString());
+
+        PrintStream out = System.out;
+        ByteArrayOutputStream generated = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(generated, true));
+        try {
+            run(directory, List.of(file));
+        } finally {
+            System.setOut(out);
+        }
+        Assertions.assertEquals(interpreted.toString(), generated.toString(), writer.toString());
+    }
+
+    private static Stream<Arguments> testTailCall() {
+        return Stream.of(
+                Arguments.of("Accumulator", "FUN sum(n: Integer, total: Integer): Integer DO IF n == 0 DO RETURN total; END RETURN sum(n - 1, total + n); END " +
+                        "FUN main(): Integer DO print(sum(1000000, 0)); RETURN 0; END"),
+                Arguments.of("Arguments Use Parameters", "FUN fib(n: Integer, a: Integer, b: Integer): Integer DO IF n == 0 DO RETURN a; END RETURN fib(n - 1, b, a + b); END " +
+                        "FUN main(): Integer DO print(fib(90, 0, 1)); RETURN 0; END"),
+                Arguments.of("In Loop And Switch", "FUN down(n: Integer): Integer DO WHILE n > 0 DO SWITCH n CASE 1: RETURN down(n - 1); DEFAULT n = n - 2; END END RETURN n; END " +
+                        "FUN main(): Integer DO print(down(100001)); print(down(100000)); RETURN 0; END"),
+                Arguments.of("Decimals", "FUN halve(x: Decimal, n: Integer): Decimal DO IF n == 0 DO RETURN x; END RETURN halve(x / 2.0, n - 1); END " +
+                        "FUN main(): Integer DO print(halve(1000.0, 5)); RETURN 0; END")
+        );
+    }
+
+    private static Stream<Arguments> testExactArithmetic() {
+        return Stream.of(
+                Arguments.of("Beyond Int", "VAR x: Integer = 2000000000; FUN main(): Integer DO print(x * 2 - 1); RETURN 0; END"),
+                Arguments.of("Division", "FUN main(): Integer DO print(-7 / 2); print(7.0 / 2.0); print(1.0 / 3.0); RETURN 7 / 3; END"),
+                Arguments.of("Decimals", "VAL a: Decimal = 0.1; FUN main(): Integer DO print(a + 0.2); print(a * 3.00); print(a == 0.10); print(a < 0.2); RETURN 0; END"),
+                Arguments.of("Power", "FUN main(): Integer DO print(2 ^ 62); print(-1 ^ -3); print(1.5 ^ 3); print(2.0 ^ -2); RETURN 3 ^ 2; END"),
+                Arguments.of("List", "LIST values: Integer = [2000000000, 2, 3]; FUN main(): Integer DO values[1] = values[0] * values[2]; print(values[1]); RETURN 0; END"),
+                Arguments.of("Switch", "FUN main(): Integer DO LET x = 2 ^ 32 + 1; SWITCH x CASE 1: print(1); DEFAULT print(x); END RETURN 0; END"),
+                Arguments.of("Concatenation", "FUN main(): Integer DO print(\"n = \" + 2 * 3); print(1.5 + \"!\"); RETURN 0; END"),
+                Arguments.of("String Equality", "FUN main(): Integer DO LET s = \"a\" + \"b\"; print(s == \"ab\"); print(s != \"ab\"); print('a' == 'a'); RETURN 0; END")
+        );
+    }
+
+    @Test
+    void testExactOverflow(@TempDir Path directory) throws Exception {
+        Ast.Source ast = analyze("VAR x: Integer = 2; FUN main(): Integer DO x = x ^ 62; x = x * 2; RETURN 0; END");
+        StringWriter writer = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(writer));
+        generator.setExactArithmetic(true);
+        generator.visit(ast);
+        Path file = directory.resolve("Main.java");
+        Files.writeString(file, writer.toString());
+
+        InvocationTargetException e = Assertions.assertThrows(InvocationTargetException.class, () -> run(directory, List.of(file)));
+        Assertions.assertInstanceOf(ArithmeticException.class, e.getCause());
+    }
+
+    //compiles the generated files and returns what the program's main function returns
+    private static Object run(Path directory, List<Path> files) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>(List.of("-d", directory.toString()));
+        for (Path file : files) {
+            arguments.add(file.toString());
+        }
+        Assertions.assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {directory.toUri().toURL()})) {
+            Class<?> main = loader.loadClass("Main");
+            Method method = main.getDeclaredMethod("main");
+            method.setAccessible(true);
+            return method.invoke(main.getDeclaredConstructor().newInstance());
+        }
+    }
+
+    //a program of many functions, each calling the one before it
+    private static String program(int functions) {
+        StringBuilder program = new StringBuilder("VAR total: Integer = 0; LIST values: Integer = [1, 2, 3];");
+        program.append(" FUN f0(n: Integer): Integer DO RETURN n; END");
+        for (int i = 1; i < functions; i++) {
+            program.append(" FUN f").append(i).append("(n: Integer): Integer DO total = total + values[1]; RETURN f").append(i - 1).append("(n) + 1; END");
+        }
+        program.append(" FUN main(): Integer DO RETURN f").append(functions - 1).append("(0) + total; END");
+        return program.toString();
+    }
+
+    private static Ast.Source analyze(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    private static String generate(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
     /**
      * Helper function for tests, using a StringWriter as the output stream.
      */
@@ -0,0 +1,73 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class IncrementalCompilerTests {
+
+    private static final String SOURCE = String.join("\n",
+            "VAR x: Integer = 1;",
+            "FUN f(n: Integer): Integer DO RETURN n + x; END",
+            "FUN g(): Integer DO RETURN f(2); END",
+            "FUN h(): Integer DO RETURN 3; END",
+            "FUN main(): Integer DO print(g() + h()); RETURN 0; END"
+    );
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testRecompile(String test, String edited, List<String> recompiled) {
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        Assertions.assertEquals(generate(SOURCE), compiler.compile(SOURCE));
+        Assertions.assertEquals(Arrays.asList("f/1", "g/0", "h/0", "main/0"), compiler.getRecompiled());
+
+        Assertions.assertEquals(generate(edited), compiler.compile(edited));
+        Assertions.assertEquals(recompiled, compiler.getRecompiled());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> compiler.getRecompiled().add("main/0"));
+    }
+
+    private static Stream<Arguments> testRecompile() {
+        return Stream.of(
+                Arguments.of("Unchanged", SOURCE, Arrays.asList()),
+                Arguments.of("Function Body", SOURCE.replace("RETURN 3;", "RETURN 4;"), Arrays.asList("h/0")),
+                Arguments.of("Global Value", SOURCE.replace("= 1;", "= 5;"), Arrays.asList()),
+                Arguments.of("Global Type", SOURCE.replace("VAR x: Integer = 1;", "VAR x: Decimal = 1.5;").replace("FUN f(n: Integer): Integer DO RETURN n + x; END", "FUN f(n: Integer): Integer DO RETURN n; END"), Arrays.asList("f/1")),
+                Arguments.of("Global Mutability", SOURCE.replace("VAR x", "VAL x"), Arrays.asList("f/1")),
+                Arguments.of("Signature", SOURCE.replace("FUN f(n: Integer): Integer DO RETURN n + x; END", "FUN f(n: Integer): Decimal DO RETURN 1.0; END").replace("RETURN f(2);", "RETURN 2;"), Arrays.asList("f/1", "g/0"))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testError(String test, String edited) {
+        IncrementalCompiler compiler = new IncrementalCompiler();
+        compiler.compile(SOURCE);
+        Assertions.assertThrows(RuntimeException.class, () -> compiler.compile(edited));
+        Assertions.assertEquals(generate(SOURCE), compiler.compile(SOURCE));
+        Assertions.assertEquals(Arrays.asList(), compiler.getRecompiled());
+    }
+
+    private static Stream<Arguments> testError() {
+        return Stream.of(
+                Arguments.of("Removed Global", SOURCE.replace("VAR x: Integer = 1;", "")),
+                Arguments.of("Changed Return Type", SOURCE.replace("FUN f(n: Integer): Integer DO RETURN n + x; END", "FUN f(n: Integer): String DO RETURN \"s\"; END")),
+                Arguments.of("Moved After Caller", SOURCE.replace("FUN f(n: Integer): Integer DO RETURN n + x; END\n", "") + "\nFUN f(n: Integer): Integer DO RETURN n + x; END")
+        );
+    }
+
+    private static String generate(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+}
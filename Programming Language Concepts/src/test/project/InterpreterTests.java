@@ -8,6 +8,7 @@ import org.junit.jupiter.params.provider.MethodSource;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.lang.ref.WeakReference;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.Arrays;
@@ -180,6 +181,42 @@ final class InterpreterTests {
         Assertions.assertEquals(expected, scope.lookupVariable("list").getValue().getValue());
     }
 
+    @Test
+    void testOffHeapList() {
+        // [1, 5, 10]
+
+        List<Object> expected = Arrays.asList(BigInteger.ONE, BigInteger.valueOf(5), BigInteger.TEN);
+
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setOffHeapThreshold(3);
+        PlcArray list = (PlcArray) interpreter.visit(new Ast.Expression.PlcList(Arrays.asList(new Ast.Expression.Literal(BigInteger.ONE),
+                new Ast.Expression.Literal(BigInteger.valueOf(5)),
+                new Ast.Expression.Literal(BigInteger.TEN)))).getValue();
+
+        Assertions.assertTrue(list.isOffHeap());
+        Assertions.assertEquals(expected, list);
+        interpreter.close();
+        Assertions.assertThrows(RuntimeException.class, () -> list.get(0));
+    }
+
+    @Test
+    void testListAssignmentInPlace() {
+        // list[0] = 3;
+
+        List<Object> list = Arrays.asList(BigInteger.ONE, BigInteger.valueOf(5), BigInteger.TEN);
+
+        Scope scope = new Scope(null);
+        scope.defineVariable("list", true, Environment.create(list));
+        Environment.PlcObject value = scope.lookupVariable("list").getValue();
+        test(new Ast.Statement.Assignment(
+                new Ast.Expression.Access(Optional.of(new Ast.Expression.Literal(BigInteger.ZERO)), "list"),
+                new Ast.Expression.Literal(BigInteger.valueOf(3))
+        ), Environment.NIL.getValue(), scope);
+
+        Assertions.assertSame(value, scope.lookupVariable("list").getValue());
+        Assertions.assertEquals(BigInteger.valueOf(3), list.get(0));
+    }
+
     @ParameterizedTest
     @MethodSource
     void testIfStatement(String test, Ast.Statement.If ast, Object expected) {
@@ -245,6 +282,79 @@ final class InterpreterTests {
         Assertions.assertEquals(new Character('n'), scope.lookupVariable("letter").getValue().getValue());
     }
 
+    @ParameterizedTest
+    @MethodSource
+    void testSwitchDispatch(String test, String source, String expected) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Interpreter(new Scope(null), new PrintStream(out, true)).visit(ast);
+        Assertions.assertEquals(expected.replace("\n", System.lineSeparator()), out.toString());
+    }
+
+    private static Stream<Arguments> testSwitchDispatch() {
+        return Stream.of(
+                Arguments.of("Condition Once",
+                        "VAR calls: Integer = 0; FUN next(): Integer DO calls = calls + 1; RETURN 3; END " +
+                        "FUN main(): Integer DO SWITCH next() CASE 1: print(1); CASE 2: print(2); CASE 3: print(3); DEFAULT print(0); END print(calls); RETURN 0; END",
+                        "3\n1\n"),
+                Arguments.of("Table Reused",
+                        "FUN main(): Integer DO LET i = 0; WHILE i < 4 DO SWITCH i CASE 1: print(\"one\"); CASE 3: print(\"three\"); DEFAULT print(i); END i = i + 1; END RETURN 0; END",
+                        "0\none\n2\nthree\n"),
+                Arguments.of("Characters",
+                        "FUN main(): Integer DO SWITCH 'b' CASE 'a': print(1); CASE 'b': print(2); DEFAULT print(0); END RETURN 0; END",
+                        "2\n"),
+                Arguments.of("Duplicate Case",
+                        "FUN main(): Integer DO SWITCH 1 CASE 1: print(\"first\"); CASE 1: print(\"second\"); DEFAULT print(0); END RETURN 0; END",
+                        "first\n"),
+                Arguments.of("Expression Case",
+                        "VAR x: Integer = 1; FUN main(): Integer DO SWITCH 2 CASE x: print(1); CASE x + 1: print(2); DEFAULT print(0); END RETURN 0; END",
+                        "2\n"),
+                Arguments.of("Default",
+                        "FUN main(): Integer DO SWITCH 9 CASE 1: print(1); DEFAULT print(0); END RETURN 0; END",
+                        "0\n")
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void testTailCall(String test, String source, String expected) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new Interpreter(new Scope(null), new PrintStream(out, true)).visit(ast);
+        Assertions.assertEquals(expected.replace("\n", System.lineSeparator()), out.toString());
+    }
+
+    private static Stream<Arguments> testTailCall() {
+        return Stream.of(
+                //deep enough to overflow the Java stack if every call took a frame
+                Arguments.of("Accumulator",
+                        "FUN sum(n: Integer, total: Integer): Integer DO IF n == 0 DO RETURN total; END RETURN sum(n - 1, total + n); END " +
+                        "FUN main(): Integer DO print(sum(200000, 0)); RETURN 0; END",
+                        "20000100000\n"),
+                Arguments.of("Arguments Use Parameters",
+                        "FUN fib(n: Integer, a: Integer, b: Integer): Integer DO IF n == 0 DO RETURN a; END RETURN fib(n - 1, b, a + b); END " +
+                        "FUN main(): Integer DO print(fib(90, 0, 1)); RETURN 0; END",
+                        "2880067194370816120\n"),
+                Arguments.of("In Loop And Switch",
+                        "FUN down(n: Integer): Integer DO WHILE n > 0 DO SWITCH n CASE 1: RETURN down(n - 1); DEFAULT n = n - 2; END END RETURN n; END " +
+                        "FUN main(): Integer DO print(down(100001)); print(down(100000)); RETURN 0; END",
+                        "0\n0\n"),
+                Arguments.of("Locals Are Fresh",
+                        "FUN count(n: Integer): Integer DO LET seen = n; IF n == 0 DO RETURN seen; END RETURN count(n - 1); END " +
+                        "FUN main(): Integer DO print(count(50000)); RETURN 0; END",
+                        "0\n"),
+                Arguments.of("Not A Tail Call",
+                        "FUN factorial(n: Integer): Integer DO IF n == 0 DO RETURN 1; END RETURN n * factorial(n - 1); END " +
+                        "FUN main(): Integer DO print(factorial(20)); RETURN 0; END",
+                        "2432902008176640000\n"),
+                Arguments.of("Other Function",
+                        "FUN one(): Integer DO RETURN 1; END FUN two(): Integer DO RETURN one(); END " +
+                        "FUN main(): Integer DO print(two()); RETURN 0; END",
+                        "1\n")
+        );
+    }
+
     @Test
     void testWhileStatement() {
         // WHILE num < 10 DO num = num + 1; END
@@ -373,6 +483,38 @@ final class InterpreterTests {
                                 new Ast.Expression.Literal(new BigDecimal("3.4"))
                         ),
                         new BigDecimal("0.4")
+                ),
+                // 2 ^ 100
+                Arguments.of("Exponent",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(BigInteger.valueOf(2)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(100))
+                        ),
+                        BigInteger.valueOf(2).pow(100)
+                ),
+                // 2 ^ -1
+                Arguments.of("Negative Integer Exponent",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(BigInteger.valueOf(2)),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-1))
+                        ),
+                        BigInteger.ZERO
+                ),
+                // 2.0 ^ -2
+                Arguments.of("Negative Decimal Exponent",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(new BigDecimal("2.0")),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-2))
+                        ),
+                        new BigDecimal("0.25")
+                ),
+                // 0 ^ -1
+                Arguments.of("Zero Negative Exponent",
+                        new Ast.Expression.Binary("^",
+                                new Ast.Expression.Literal(BigInteger.ZERO),
+                                new Ast.Expression.Literal(BigInteger.valueOf(-1))
+                        ),
+                        null
                 )
         );
     }
@@ -429,6 +571,48 @@ final class InterpreterTests {
         );
     }
 
+    @Test
+    void testFunctionCallSiteInvalidation() {
+        // function() is cached at its call site, defining a new function/0 must invalidate the cache
+        Scope scope = new Scope(null);
+        scope.defineFunction("function", 0, args -> Environment.create("parent"));
+        Interpreter interpreter = new Interpreter(scope);
+        Ast.Expression.Function ast = new Ast.Expression.Function("function", Arrays.asList());
+
+        Assertions.assertEquals("parent", interpreter.visit(ast).getValue());
+        Assertions.assertEquals("parent", interpreter.visit(ast).getValue());
+
+        interpreter.getScope().defineFunction("function", 0, args -> Environment.create("child"));
+        Assertions.assertEquals("child", interpreter.visit(ast).getValue());
+    }
+
+    @Test
+    void testSharedTree() {
+        // a tree run by one interpreter and then another calls each interpreter's own functions, before and after the other ran it
+        Ast.Source ast = new Parser(new Lexer("FUN twice(n: Integer): Integer DO RETURN n * 2; END " +
+                "FUN main(): Integer DO print(twice(1)); RETURN 0; END").lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        ByteArrayOutputStream firstOut = new ByteArrayOutputStream();
+        ByteArrayOutputStream secondOut = new ByteArrayOutputStream();
+        Interpreter first = new Interpreter(new Scope(null), new PrintStream(firstOut, true));
+        Interpreter second = new Interpreter(new Scope(null), new PrintStream(secondOut, true));
+
+        first.visit(ast);
+        second.visit(ast);
+        second.getScope().lookupFunction("main", 0).invoke(Arrays.asList());
+        Assertions.assertEquals("2" + System.lineSeparator(), firstOut.toString());
+        Assertions.assertEquals(("2" + System.lineSeparator()).repeat(2), secondOut.toString());
+
+        // the tree doesn't keep a finished interpreter reachable
+        WeakReference<Interpreter> finished = new WeakReference<>(first);
+        first = null;
+        for (int i = 0; i < 20 && finished.get() != null; i++) {
+            System.gc();
+        }
+        Assertions.assertNull(finished.get());
+        Assertions.assertNotNull(ast);
+    }
+
     @Test
     void testPlcList() {
         // [1, 5, 10]
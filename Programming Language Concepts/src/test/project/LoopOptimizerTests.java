@@ -0,0 +1,119 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class LoopOptimizerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testFunction(String test, String body, String expected) {
+        String source = "FUN main(): Integer DO LET a = 3; LET b = 4; LET i = 0; " + body + " RETURN 0; END";
+        String generated = generate(new LoopOptimizer().visit(analyze(source)));
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "public class Main {",
+                "",
+                "    public static void main(String[] args) {",
+                "        System.exit(new Main().main());",
+                "    }",
+                "",
+                "    int main() {",
+                "        int a = 3;",
+                "        int b = 4;",
+                "        int i = 0;",
+                expected,
+                "        return 0;",
+                "    }",
+                "",
+                "}"
+        ), generated);
+    }
+
+    private static Stream<Arguments> testFunction() {
+        return Stream.of(
+                Arguments.of("Invariant", "WHILE i < a * b DO i = i + 1; END", String.join(System.lineSeparator(),
+                        "        int _licm0 = a * b;",
+                        "        while (i < _licm0) {",
+                        "            i = i + 1;",
+                        "        }"
+                )),
+                Arguments.of("Assigned In Loop", "WHILE i < a * b DO a = a - 1; END", String.join(System.lineSeparator(),
+                        "        while (i < a * b) {",
+                        "            a = a - 1;",
+                        "        }"
+                )),
+                Arguments.of("Division", "WHILE i < a / b DO i = i + 1; END", String.join(System.lineSeparator(),
+                        "        while (i < a / b) {",
+                        "            i = i + 1;",
+                        "        }"
+                )),
+                Arguments.of("Common Subexpression", "WHILE i < 10 DO print(i * 2); print(i * 2); i = i * 2; print(i * 2); END", String.join(System.lineSeparator(),
+                        "        while (i < 10) {",
+                        "            int _cse0 = i * 2;",
+                        "            System.out.println(_cse0);",
+                        "            System.out.println(_cse0);",
+                        "            i = _cse0;",
+                        "            System.out.println(i * 2);",
+                        "        }"
+                )),
+                Arguments.of("Uninitialized", "LET c: Integer; WHILE i < a * c DO i = i + 1; END", String.join(System.lineSeparator(),
+                        "        int c;",
+                        "        while (i < a * c) {",
+                        "            i = i + 1;",
+                        "        }"
+                ))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSource(String test, String source, Object expected) {
+        Ast.Source ast = new LoopOptimizer().visit(analyze(source));
+        Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(ast).getValue());
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Nested Loops", String.join("\n",
+                        "FUN main(): Integer DO",
+                        "    LET a = 3; LET i = 0; LET sum = 0;",
+                        "    WHILE i < 4 DO",
+                        "        LET j = 0;",
+                        "        WHILE j < a + a DO sum = sum + i * a + a * a; j = j + 1; END",
+                        "        i = i + 1;",
+                        "    END",
+                        "    RETURN sum;",
+                        "END"
+                ), BigInteger.valueOf(324)),
+                Arguments.of("Global Changed By Call", String.join("\n",
+                        "VAR g: Integer = 1;",
+                        "FUN inc() DO g = g + 1; END",
+                        "FUN main(): Integer DO",
+                        "    LET sum = 0;",
+                        "    WHILE g < 4 DO sum = sum + g * 10; inc(); END",
+                        "    RETURN sum;",
+                        "END"
+                ), BigInteger.valueOf(60))
+        );
+    }
+
+    private static Ast.Source analyze(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    private static String generate(Ast ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+}
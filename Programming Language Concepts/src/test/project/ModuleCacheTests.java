@@ -0,0 +1,57 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+final class ModuleCacheTests {
+
+    private static final String SOURCE = "VAR total: Integer = 0; FUN add(n: Integer): Integer DO total = total + n; RETURN total; END " +
+            "FUN main(): Integer DO add(1); add(2); print(total); RETURN total; END";
+
+    @Test
+    void testKey() {
+        Assertions.assertEquals(ModuleCache.key(analyze(SOURCE)), ModuleCache.key(analyze(SOURCE)));
+        Assertions.assertNotEquals(ModuleCache.key(analyze(SOURCE)), ModuleCache.key(analyze(SOURCE.replace("add(2)", "add(3)"))));
+        Assertions.assertEquals(64, ModuleCache.key(analyze(SOURCE)).length());
+    }
+
+    @Test
+    void testCompile(@TempDir Path directory) throws Exception {
+        ModuleCache cache = new ModuleCache(directory.resolve("cache"));
+        Path module = cache.compile(analyze(SOURCE));
+        Assertions.assertTrue(Files.exists(module.resolve("Main.jar")));
+        Assertions.assertTrue(Files.exists(module.resolve("Main.java.map")));
+
+        Assertions.assertEquals(module, cache.compile(analyze(SOURCE)));
+        Assertions.assertEquals(1, cache.getHits());
+        Assertions.assertEquals(1, cache.getMisses());
+        try (var files = Files.list(directory.resolve("cache"))) {
+            Assertions.assertEquals(1, files.count()); //no staging directory is left behind
+        }
+    }
+
+    @Test
+    void testRun(@TempDir Path directory) throws Exception {
+        ModuleCache cache = new ModuleCache(directory.resolve("cache"));
+        Ast.Source ast = analyze(SOURCE);
+
+        Path output = directory.resolve("output");
+        Assertions.assertEquals(3, cache.run(ast, new ProcessBuilder().redirectErrorStream(true).redirectOutput(output.toFile())));
+        Assertions.assertEquals("3" + System.lineSeparator(), Files.readString(output));
+        Assertions.assertTrue(Files.size(cache.compile(ast).resolve("app.jsa")) > 0);
+
+        Assertions.assertEquals(3, cache.run(ast, new ProcessBuilder().redirectErrorStream(true).redirectOutput(output.toFile())));
+        Assertions.assertEquals("3" + System.lineSeparator(), Files.readString(output)); //no warning about the archive
+    }
+
+    private static Ast.Source analyze(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
@@ -0,0 +1,86 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.stream.Stream;
+
+final class OptimizerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testFunction(String test, String body, String expected) {
+        String source = "FUN main(): Integer DO " + body + " RETURN 0; END";
+        String generated = generate(new Optimizer().visit(analyze(source)));
+        Assertions.assertEquals(String.join(System.lineSeparator(),
+                "public class Main {",
+                "",
+                "    public static void main(String[] args) {",
+                "        System.exit(new Main().main());",
+                "    }",
+                "",
+                "    int main() {",
+                expected,
+                "        return 0;",
+                "    }",
+                "",
+                "}"
+        ), generated);
+    }
+
+    private static Stream<Arguments> testFunction() {
+        return Stream.of(
+                Arguments.of("Arithmetic", "LET x = 1 + 2 * 3;", "        int x = 7;"),
+                Arguments.of("Group", "LET x = (1 + 2) * 3;", "        int x = 9;"),
+                Arguments.of("Concatenation", "LET s = \"a\" + 1 + 'c';", "        String s = \"a1c\";"),
+                Arguments.of("Comparison", "LET b = 1 < 2 && 'a' == 'b';", "        boolean b = false;"),
+                Arguments.of("Division By Zero", "LET x = 1 / 0;", "        int x = 1 / 0;"),
+                Arguments.of("Decimal Division", "LET d = 1.2 / 3.4;", "        double d = 1.2 / 3.4;"),
+                Arguments.of("If True", "IF TRUE DO print(1); ELSE print(2); END", "        System.out.println(1);"),
+                Arguments.of("If False Declaration", "IF FALSE DO print(1); ELSE LET x = 2; END", String.join(System.lineSeparator(),
+                        "        if (true) {",
+                        "            int x = 2;",
+                        "        }"
+                )),
+                Arguments.of("While False", "WHILE 1 > 2 DO print(1); END LET x = 1;", "        int x = 1;"),
+                Arguments.of("Switch", "SWITCH 'b' CASE 'a': print(1); CASE 'b': print(2); DEFAULT print(3); END", "        System.out.println(2);")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSource(String test, String source, Object expected) {
+        Ast.Source ast = new Optimizer().visit(analyze(source));
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        if (expected != null) {
+            Assertions.assertEquals(expected, interpreter.visit(ast).getValue());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> interpreter.visit(ast));
+        }
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Folded", "FUN main(): Integer DO RETURN 2 ^ 10 - 24; END", BigInteger.valueOf(1000)),
+                Arguments.of("Division By Zero", "FUN main(): Integer DO RETURN 1 / (1 - 1); END", null)
+        );
+    }
+
+    private static Ast.Source analyze(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    private static String generate(Ast ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+}
@@ -515,6 +515,19 @@ final class ParserTests {
         test(input, expected, Parser::parseSource);
     }
 
+    @Test
+    void testUnterminatedBlock() {
+        //FUN main() DO
+        List<Token> input = Arrays.asList(
+                new Token(Token.Type.IDENTIFIER, "FUN", 0),
+                new Token(Token.Type.IDENTIFIER, "main", 4),
+                new Token(Token.Type.OPERATOR, "(", 8),
+                new Token(Token.Type.OPERATOR, ")", 9),
+                new Token(Token.Type.IDENTIFIER, "DO", 11)
+        );
+        test(input, null, Parser::parseSource);
+    }
+
     /**
      * Standard test function. If expected is null, a ParseException is expected
      * to be thrown (not used in the provided tests).
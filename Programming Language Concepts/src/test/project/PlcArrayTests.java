@@ -0,0 +1,77 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class PlcArrayTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testStorage(String test, Environment.Type type, List<Object> values, Object assigned) {
+        PlcArray array = PlcArray.of(type, values);
+        Assertions.assertEquals(values, array);
+        array.put(0, assigned);
+        Assertions.assertEquals(assigned, array.get(0));
+        Assertions.assertEquals(values.subList(1, values.size()), array.subList(1, array.size()));
+    }
+
+    private static Stream<Arguments> testStorage() {
+        return Stream.of(
+                Arguments.of("Integer", Environment.Type.INTEGER, Arrays.asList(BigInteger.ONE, BigInteger.TEN), BigInteger.valueOf(-5)),
+                Arguments.of("Integer Beyond Long", Environment.Type.INTEGER, Arrays.asList(BigInteger.ONE, BigInteger.TEN), BigInteger.TWO.pow(100)),
+                Arguments.of("Decimal", Environment.Type.DECIMAL, Arrays.asList(new BigDecimal("1.5"), new BigDecimal("2.25")), new BigDecimal("1.50")),
+                Arguments.of("Decimal Beyond Double", Environment.Type.DECIMAL, Arrays.asList(new BigDecimal("1.5"), new BigDecimal("2.25")), new BigDecimal("0.1000000000000000000001")),
+                Arguments.of("Character", Environment.Type.CHARACTER, Arrays.asList('a', 'b'), 'c'),
+                Arguments.of("Boolean", Environment.Type.BOOLEAN, Arrays.asList(true, false), false),
+                Arguments.of("String", Environment.Type.STRING, Arrays.asList("a", "b"), "c"),
+                Arguments.of("Inferred", null, Arrays.asList(BigInteger.ONE, BigInteger.TEN), BigInteger.ZERO)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("testStorage")
+    void testOffHeapStorage(String test, Environment.Type type, List<Object> values, Object assigned) {
+        PlcArray array = PlcArray.of(type, values, true);
+        Assertions.assertEquals(values, array);
+        array.put(0, assigned);
+        Assertions.assertEquals(assigned, array.get(0));
+        Assertions.assertEquals(values.subList(1, values.size()), array.subList(1, array.size()));
+    }
+
+    @Test
+    void testRelease() {
+        PlcArray array = PlcArray.of(Environment.Type.INTEGER, Arrays.asList(BigInteger.ONE, BigInteger.TEN), true);
+        Assertions.assertTrue(array.isOffHeap());
+        array.release();
+        Assertions.assertThrows(RuntimeException.class, () -> array.get(0));
+        Assertions.assertThrows(RuntimeException.class, () -> array.put(0, BigInteger.ZERO));
+    }
+
+    @Test
+    void testOffHeapFallback() {
+        //a value the buffer can't hold moves the whole list to the heap
+        PlcArray array = PlcArray.allocate(Environment.Type.INTEGER, 2, true);
+        array.put(0, BigInteger.ONE);
+        Assertions.assertTrue(array.isOffHeap());
+        array.put(1, BigInteger.TWO.pow(100));
+        Assertions.assertFalse(array.isOffHeap());
+        Assertions.assertEquals(Arrays.asList(BigInteger.ONE, BigInteger.TWO.pow(100)), array);
+    }
+
+    @Test
+    void testOutOfBounds() {
+        PlcArray array = PlcArray.of(Environment.Type.INTEGER, Arrays.asList(BigInteger.ONE));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> array.get(1));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> array.put(-1, BigInteger.ONE));
+    }
+
+}
@@ -0,0 +1,93 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Map;
+
+final class ProfilerTests {
+
+    private static final String SOURCE = String.join("\n",
+            "FUN fib(n: Integer): Integer DO",
+            "    IF n < 2 DO RETURN n; END",
+            "    RETURN fib(n - 1) + fib(n - 2);",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN fib(5);",
+            "END"
+    );
+
+    @Test
+    void testProfile() throws IOException {
+        Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Profiler profiler = new Profiler();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setProfiler(profiler);
+
+        Assertions.assertEquals(BigInteger.valueOf(5), interpreter.visit(ast).getValue());
+
+        Profiler.Stats fib = profiler.getFunctions().get(ast.getFunctions().get(0));
+        Profiler.Stats main = profiler.getFunctions().get(ast.getFunctions().get(1));
+        Assertions.assertEquals(15, fib.getCount());
+        Assertions.assertEquals(1, main.getCount());
+        Assertions.assertTrue(main.getInclusiveNanos() >= main.getExclusiveNanos());
+        //a function's exclusive time is the time its own stacks get
+        Assertions.assertEquals(profiler.getStacks().get("main"), main.getExclusiveNanos());
+        Assertions.assertEquals(profiler.getStacks().entrySet().stream().filter(stack -> stack.getKey().endsWith(";fib"))
+                .mapToLong(Map.Entry::getValue).sum(), fib.getExclusiveNanos());
+
+        Map<Integer, Profiler.Stats> statements = profiler.getStatementsByIndex();
+        Assertions.assertEquals(15, statements.get(SOURCE.indexOf("IF")).getCount());
+        Assertions.assertEquals(7, statements.get(SOURCE.indexOf("RETURN fib(n - 1)")).getCount());
+        Assertions.assertEquals(1, statements.get(SOURCE.indexOf("RETURN fib(5)")).getCount());
+
+        StringWriter folded = new StringWriter();
+        profiler.writeFolded(folded);
+        Assertions.assertTrue(folded.toString().contains("main;fib;fib;fib;fib "), folded.toString());
+        Assertions.assertEquals(6, profiler.getStacks().size());
+    }
+
+    @Test
+    void testCalleeFree() {
+        //a function that calls no other function spends all of its time in itself, its statements included
+        Ast.Source ast = new Parser(new Lexer(String.join("\n",
+                "FUN main(): Integer DO",
+                "    LET i = 0;",
+                "    LET total = 0;",
+                "    WHILE i < 1000 DO total = total + i * i; i = i + 1; END",
+                "    RETURN total;",
+                "END"
+        )).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Profiler profiler = new Profiler();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setProfiler(profiler);
+        interpreter.visit(ast);
+
+        Profiler.Stats main = profiler.getFunctions().get(ast.getFunctions().get(0));
+        Assertions.assertTrue(main.getInclusiveNanos() > 0);
+        Assertions.assertEquals(main.getInclusiveNanos(), main.getExclusiveNanos());
+        Assertions.assertEquals(main.getInclusiveBytes(), main.getExclusiveBytes());
+        //a statement still excludes the statements it ran
+        Profiler.Stats loop = profiler.getStatements().get(ast.getFunctions().get(0).getStatements().get(2));
+        Assertions.assertTrue(loop.getExclusiveNanos() < loop.getInclusiveNanos());
+    }
+
+    @Test
+    void testDisabled() {
+        Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Profiler profiler = new Profiler();
+        Interpreter interpreter = new Interpreter(new Scope(null));
+        interpreter.setProfiler(profiler);
+        interpreter.setProfiler(null);
+
+        Assertions.assertEquals(BigInteger.valueOf(5), interpreter.visit(ast).getValue());
+        Assertions.assertTrue(profiler.getFunctions().isEmpty());
+    }
+
+}
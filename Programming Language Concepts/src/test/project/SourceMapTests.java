@@ -0,0 +1,172 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+final class SourceMapTests {
+
+    private static final String SOURCE = String.join("\n",
+            "FUN divide(n: Integer): Integer DO",
+            "    LET x = 1;",
+            "    RETURN x / n;",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN divide(0);",
+            "END"
+    );
+
+    @Test
+    void testMappedLines() {
+        SourceMap map = new SourceMap("Main");
+        generate(analyze(SOURCE), map);
+
+        //1 public class Main {, 3 the java main, 7 int divide(int n) {, 8 int x = 1;, 9 return x / n;, 10 }, 12 int main() {, 13 return divide(0);
+        Assertions.assertEquals(-1, map.getIndex(1));
+        Assertions.assertEquals(-1, map.getIndex(4));
+        Assertions.assertEquals(List.of(1, 1), position(map.getIndex(7)));
+        Assertions.assertEquals(List.of(2, 5), position(map.getIndex(8)));
+        Assertions.assertEquals(List.of(3, 5), position(map.getIndex(9)));
+        Assertions.assertEquals(List.of(3, 5), position(map.getIndex(10)));
+        Assertions.assertEquals(List.of(5, 1), position(map.getIndex(12)));
+        Assertions.assertEquals(List.of(6, 5), position(map.getIndex(13)));
+    }
+
+    @Test
+    void testParallelSource() {
+        Ast.Source ast = analyze(SOURCE);
+        SourceMap expected = new SourceMap("Main");
+        generate(ast, expected);
+
+        SourceMap map = new SourceMap("Main");
+        Generator generator = new Generator(new PrintWriter(new StringWriter()));
+        generator.setSourceMap(map);
+        generator.visitParallel(ast);
+        Assertions.assertEquals(expected.encode(), map.encode());
+    }
+
+    @Test
+    void testReusedFunction() {
+        Ast.Source ast = analyze(SOURCE);
+        SourceMap map = new SourceMap("Main");
+        Generator generator = new Generator(new PrintWriter(new StringWriter()));
+        generator.setSourceMap(map);
+        generator.reuse(ast.getFunctions().get(0), Generator.generateFunction(ast.getFunctions().get(0)));
+        generator.visit(ast);
+
+        //the statements of a reused function map to the function, and the functions after it are still mapped
+        Assertions.assertEquals(List.of(1, 1), position(map.getIndex(9)));
+        Assertions.assertEquals(List.of(6, 5), position(map.getIndex(13)));
+    }
+
+    @Test
+    void testOutlinedFunction() {
+        SourceMap map = new SourceMap("Main");
+        StringWriter writer = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(writer));
+        generator.setSourceMap(map);
+        generator.setMethodSize(1);
+        generator.visit(analyze(SOURCE));
+
+        //the helper's statement maps to its statement even though it comes after the method, and the frame class maps to generated code
+        List<String> lines = writer.toString().lines().toList();
+        Assertions.assertEquals(List.of(2, 5), position(map.getIndex(lines.indexOf("        $frame.x = 1;") + 1)));
+        Assertions.assertEquals(List.of(3, 5), position(map.getIndex(lines.indexOf("        return $frame.x / $frame.n;") + 1)));
+        Assertions.assertEquals(-1, map.getIndex(lines.indexOf("    static final class divide$1$Frame {") + 1));
+        Assertions.assertEquals(map.encode(), SourceMap.decode(map.encode()).encode());
+    }
+
+    @Test
+    void testRewriteStackTrace(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("Main.java");
+        Generator.generate(analyze(SOURCE), file);
+        SourceMap map = SourceMap.read(directory.resolve("Main.java.map"));
+
+        InvocationTargetException e = Assertions.assertThrows(InvocationTargetException.class, () -> run(directory, file));
+        Throwable error = e.getCause();
+        Assertions.assertInstanceOf(ArithmeticException.class, error);
+
+        StringWriter trace = new StringWriter();
+        error.printStackTrace(new PrintWriter(trace));
+        String rewritten = map.rewrite(trace.toString(), "script.plc", SOURCE);
+        Assertions.assertTrue(rewritten.contains("Main.divide(script.plc:3:5)"), rewritten);
+        Assertions.assertTrue(rewritten.contains("Main.main(script.plc:6:5)"), rewritten);
+
+        map.rewrite(error, "script.plc", SOURCE);
+        StackTraceElement top = error.getStackTrace()[0];
+        Assertions.assertEquals("divide", top.getMethodName());
+        Assertions.assertEquals("script.plc", top.getFileName());
+        Assertions.assertEquals(3, top.getLineNumber());
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testPosition(String test, String source, int index, int line, int column) {
+        int[] position = SourceMap.getPosition(source, index);
+        Assertions.assertEquals(line, position[0]);
+        Assertions.assertEquals(column, position[1]);
+    }
+
+    private static Stream<Arguments> testPosition() {
+        return Stream.of(
+                Arguments.of("Start", "abc", 0, 1, 1),
+                Arguments.of("First Line", "abc\ndef", 2, 1, 3),
+                Arguments.of("Newline", "abc\ndef", 4, 2, 1),
+                Arguments.of("Carriage Return Newline", "abc\r\ndef", 6, 2, 2),
+                Arguments.of("Carriage Return", "a\rb\rc", 4, 3, 1)
+        );
+    }
+
+    @Test
+    void testMalformed() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SourceMap.decode("Main\n1:0\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SourceMap.decode("plc-source-map 1\nMain\n1:0,x\n"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> SourceMap.decode("plc-source-map 1\nMain\n3:0,-1:4\n"));
+    }
+
+    private static List<Integer> position(int index) {
+        return Arrays.stream(SourceMap.getPosition(SOURCE, index)).boxed().toList();
+    }
+
+    private static void generate(Ast.Source ast, SourceMap map) {
+        Generator generator = new Generator(new PrintWriter(new StringWriter()));
+        generator.setSourceMap(map);
+        generator.visit(ast);
+    }
+
+    private static Ast.Source analyze(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+    //compiles the generated file (with line numbers, javac's default) and returns what the program's main function returns
+    private static Object run(Path directory, Path file) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assertions.assertEquals(0, compiler.run(null, null, null, "-d", directory.toString(), file.toString()));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {directory.toUri().toURL()})) {
+            Class<?> main = loader.loadClass("Main");
+            Method method = main.getDeclaredMethod("main");
+            method.setAccessible(true);
+            return method.invoke(main.getDeclaredConstructor().newInstance());
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+final class SpecializerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testBinaryExpression(String test, Ast.Expression.Binary ast, Operation operation, Object expected) {
+        new Specializer().visit(ast);
+        Assertions.assertEquals(operation, ast.getOperation());
+        if (expected != null) {
+            Assertions.assertEquals(expected, new Interpreter(new Scope(null)).visit(ast).getValue());
+        } else {
+            Assertions.assertThrows(RuntimeException.class, () -> new Interpreter(new Scope(null)).visit(ast));
+        }
+    }
+
+    private static Stream<Arguments> testBinaryExpression() {
+        return Stream.of(
+                // 1 + 10
+                Arguments.of("Integer Addition",
+                        binary("+", literal(BigInteger.ONE, Environment.Type.INTEGER), literal(BigInteger.TEN, Environment.Type.INTEGER), Environment.Type.INTEGER),
+                        Operation.INTEGER_ADD,
+                        BigInteger.valueOf(11)
+                ),
+                // 1.2 < 3.4
+                Arguments.of("Decimal Comparison",
+                        binary("<", literal(new BigDecimal("1.2"), Environment.Type.DECIMAL), literal(new BigDecimal("3.4"), Environment.Type.DECIMAL), Environment.Type.BOOLEAN),
+                        Operation.DECIMAL_LESS,
+                        true
+                ),
+                // "a" + 1
+                Arguments.of("Concatenation",
+                        binary("+", literal("a", Environment.Type.STRING), literal(BigInteger.ONE, Environment.Type.INTEGER), Environment.Type.STRING),
+                        Operation.STRING_CONCAT,
+                        "a1"
+                ),
+                // FALSE && undefined
+                Arguments.of("And (Short Circuit)",
+                        binary("&&", literal(false, Environment.Type.BOOLEAN), init(new Ast.Expression.Access(Optional.empty(), "undefined"),
+                                ast -> ast.setVariable(new Environment.Variable("undefined", "undefined", Environment.Type.BOOLEAN, true, Environment.NIL))), Environment.Type.BOOLEAN),
+                        Operation.AND,
+                        false
+                ),
+                // 1 / 0
+                Arguments.of("Integer Division By Zero",
+                        binary("/", literal(BigInteger.ONE, Environment.Type.INTEGER), literal(BigInteger.ZERO, Environment.Type.INTEGER), Environment.Type.INTEGER),
+                        Operation.INTEGER_DIVIDE,
+                        null
+                )
+        );
+    }
+
+    private static Ast.Expression.Literal literal(Object value, Environment.Type type) {
+        return init(new Ast.Expression.Literal(value), ast -> ast.setType(type));
+    }
+
+    private static Ast.Expression.Binary binary(String operator, Ast.Expression left, Ast.Expression right, Environment.Type type) {
+        return init(new Ast.Expression.Binary(operator, left, right), ast -> ast.setType(type));
+    }
+
+    /**
+     * Runs a callback on the given value, used for inline initialization.
+     */
+    private static <T> T init(T value, Consumer<T> initializer) {
+        initializer.accept(value);
+        return value;
+    }
+
+}
@@ -0,0 +1,141 @@
+package plc.project;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class TelemetryTests {
+
+    private static final String SOURCE = String.join("\n",
+            "VAR x: Integer = 1;",
+            "FUN twice(n: Integer): Integer DO",
+            "    RETURN n + n;",
+            "END",
+            "FUN main(): Integer DO",
+            "    RETURN twice(x);",
+            "END"
+    );
+
+    @AfterEach
+    void reset() {
+        Telemetry.setMetrics(Metrics.NONE);
+    }
+
+    @Test
+    void testMetrics() {
+        Map<String, Long> counts = new ConcurrentHashMap<>();
+        Telemetry.setMetrics(new Metrics() {
+
+            @Override
+            public void lexed(int tokens, long nanos) {
+                counts.put("lexed", (long) tokens);
+            }
+
+            @Override
+            public void parsed(int nodes, long nanos) {
+                counts.put("parsed", (long) nodes);
+            }
+
+            @Override
+            public void analyzed(int nodes, long nanos) {
+                counts.put("analyzed", (long) nodes);
+            }
+
+            @Override
+            public void generated(long characters, long nanos) {
+                counts.put("generated", characters);
+            }
+
+            @Override
+            public void invoked(String function, long nanos) {
+                counts.merge(function, 1L, Long::sum);
+            }
+
+        });
+
+        List<Token> tokens = new Lexer(SOURCE).lex();
+        Ast.Source ast = new Parser(tokens).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        writer.flush();
+        new Interpreter(new Scope(null)).visit(ast);
+
+        Assertions.assertEquals(tokens.size(), counts.get("lexed"));
+        Assertions.assertEquals(Telemetry.count(ast), counts.get("parsed"));
+        Assertions.assertEquals(counts.get("parsed"), counts.get("analyzed"));
+        Assertions.assertEquals(writer.toString().length(), counts.get("generated"));
+        Assertions.assertEquals(1, counts.get("main"));
+        Assertions.assertEquals(1, counts.get("twice"));
+    }
+
+    @Test
+    void testFailedStages() {
+        List<String> failed = new ArrayList<>();
+        Telemetry.setMetrics(new Metrics() {
+
+            @Override
+            public void failed(String stage, long nanos) {
+                failed.add(stage);
+            }
+
+        });
+
+        Assertions.assertThrows(ParseException.class, () -> new Lexer("FUN main() DO \"unterminated").lex());
+        Assertions.assertThrows(ParseException.class, () -> new Parser(new Lexer("FUN main() DO").lex()).parseSource());
+        Ast.Source ast = new Parser(new Lexer("FUN main(): Integer DO RETURN 'c'; END").lex()).parseSource();
+        Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visit(ast));
+        Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visitParallel(ast));
+        Assertions.assertEquals(List.of("lex", "parse", "analyze", "analyze"), failed);
+    }
+
+    @Test
+    void testCount() {
+        Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        //source, global and its literal, twice with its return and n + n (binary and two accesses), main with its return and twice(x) (call and access)
+        Assertions.assertEquals(12, Telemetry.count(ast));
+    }
+
+    @Test
+    void testFlightRecorder(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("plc.jfr");
+        try(Recording recording = new Recording()) {
+            for(String event : List.of("plc.Lex", "plc.Parse", "plc.Analyze", "plc.Generate", "plc.Invoke")) {
+                recording.enable(event);
+            }
+            recording.start();
+
+            Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+            new Analyzer(new Scope(null)).visit(ast);
+            new Generator(new PrintWriter(new StringWriter())).visit(ast);
+            new Interpreter(new Scope(null)).visit(ast);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<String> names = new ArrayList<>();
+        for(RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            names.add(event.getEventType().getName());
+            if(event.getEventType().getName().equals("plc.Parse")) {
+                Assertions.assertEquals(12, event.getInt("nodes"));
+            }
+        }
+        Assertions.assertTrue(names.containsAll(List.of("plc.Lex", "plc.Parse", "plc.Analyze", "plc.Generate")), names.toString());
+        Assertions.assertEquals(2, names.stream().filter("plc.Invoke"::equals).count(), names.toString());
+    }
+
+}
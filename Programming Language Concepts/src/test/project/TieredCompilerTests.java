@@ -0,0 +1,118 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.stream.Stream;
+
+final class TieredCompilerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testCompiled(String test, String source, boolean compiled) {
+        Ast.Source ast = analyze(source);
+        TieredCompiler compiler = new TieredCompiler(10, Runnable::run);
+        Assertions.assertEquals(run(ast, null), run(ast, compiler));
+        //the function before main is the hot one, a function it calls is compiled along with it
+        Assertions.assertEquals(compiled, compiler.isCompiled(ast.getFunctions().get(ast.getFunctions().size() - 2)));
+        Assertions.assertEquals(0, compiler.getDeoptimizations());
+    }
+
+    private static Stream<Arguments> testCompiled() {
+        return Stream.of(
+                Arguments.of("Recursive",
+                        "FUN fib(n: Integer): Integer DO IF n < 2 DO RETURN n; END RETURN fib(n - 1) + fib(n - 2); END " +
+                        "FUN main(): Integer DO print(fib(15)); RETURN 0; END",
+                        true),
+                Arguments.of("Back Edges",
+                        "FUN sum(n: Integer): Integer DO LET total = 0; WHILE n > 0 DO total = total + n; n = n - 1; END RETURN total; END " +
+                        "FUN main(): Integer DO print(sum(20)); print(sum(30)); RETURN 0; END",
+                        true),
+                Arguments.of("Callee",
+                        "FUN half(x: Decimal): Decimal DO RETURN x / 2.0; END " +
+                        "FUN halve(x: Decimal, n: Integer): Decimal DO WHILE n > 0 DO x = half(x); n = n - 1; END RETURN x; END " +
+                        "FUN main(): Integer DO LET i = 0; WHILE i < 20 DO print(halve(1000.0, i)); i = i + 1; END RETURN 0; END",
+                        true),
+                Arguments.of("Strings",
+                        "FUN label(c: Character, n: Integer): String DO SWITCH c CASE 'a': RETURN \"a\" + n; DEFAULT RETURN \"other\"; END END " +
+                        "FUN main(): Integer DO LET i = 0; WHILE i < 20 DO print(label('a', i)); print(label('b', i)); i = i + 1; END RETURN 0; END",
+                        true),
+                Arguments.of("String Equality",
+                        "FUN same(s: String): Boolean DO RETURN s == \"ab\"; END " +
+                        "FUN main(): Integer DO LET i = 0; LET n = 0; WHILE i < 50 DO IF same(\"a\" + \"b\") DO n = n + 1; END i = i + 1; END print(n); RETURN 0; END",
+                        true),
+                Arguments.of("Global",
+                        "VAR calls: Integer = 0; FUN count(n: Integer): Integer DO calls = calls + 1; RETURN n; END " +
+                        "FUN main(): Integer DO LET i = 0; WHILE i < 20 DO count(i); i = i + 1; END print(calls); RETURN 0; END",
+                        false),
+                Arguments.of("Print",
+                        "FUN show(n: Integer): Integer DO print(n); RETURN n; END " +
+                        "FUN main(): Integer DO LET i = 0; WHILE i < 20 DO show(i); i = i + 1; END RETURN 0; END",
+                        false)
+        );
+    }
+
+    @Test
+    void testOverflow() {
+        //2 ^ 70 doesn't fit the compiled code's longs, so those calls go back to the interpreter
+        Ast.Source ast = analyze("FUN power(n: Integer): Integer DO RETURN 2 ^ n; END " +
+                "FUN main(): Integer DO LET i = 0; WHILE i < 20 DO print(power(i)); i = i + 1; END print(power(70)); print(power(3)); RETURN 0; END");
+        TieredCompiler compiler = new TieredCompiler(10, Runnable::run);
+        String output = run(ast, compiler);
+        Assertions.assertEquals(run(ast, null), output);
+        Assertions.assertTrue(output.contains("1180591620717411303424"), output);
+        Assertions.assertTrue(compiler.isCompiled(ast.getFunctions().get(0)));
+        Assertions.assertEquals(1, compiler.getDeoptimizations());
+    }
+
+    @Test
+    void testError() {
+        //the interpreter runs the failing call again, so the error is the interpreter's
+        Ast.Source ast = analyze("FUN divide(n: Integer): Integer DO RETURN 10 / n; END " +
+                "FUN main(): Integer DO LET i = 1; WHILE i < 20 DO print(divide(i)); i = i + 1; END print(divide(0)); RETURN 0; END");
+        RuntimeException expected = Assertions.assertThrows(RuntimeException.class, () -> run(ast, null));
+        TieredCompiler compiler = new TieredCompiler(10, Runnable::run);
+        RuntimeException error = Assertions.assertThrows(RuntimeException.class, () -> run(ast, compiler));
+        Assertions.assertEquals(expected.getClass(), error.getClass());
+        Assertions.assertEquals(expected.getMessage(), error.getMessage());
+        Assertions.assertEquals(1, compiler.getDeoptimizations());
+    }
+
+    @Test
+    void testSharedTiers() {
+        //a second interpreter running the same tree gets the same tiers, already compiled
+        Ast.Source ast = analyze("FUN square(n: Integer): Integer DO RETURN n * n; END " +
+                "FUN main(): Integer DO LET i = 0; WHILE i < 20 DO print(square(i)); i = i + 1; END RETURN 0; END");
+        TieredCompiler compiler = new TieredCompiler(10, Runnable::run);
+        String output = run(ast, compiler);
+        TieredCompiler.Tier tier = compiler.define(ast.getFunctions().get(0));
+        Assertions.assertEquals(output, run(ast, compiler));
+        Assertions.assertSame(tier, compiler.define(ast.getFunctions().get(0)));
+        Assertions.assertTrue(compiler.isCompiled(ast.getFunctions().get(0)));
+    }
+
+    @Test
+    void testInvalidThreshold() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TieredCompiler(0, Runnable::run));
+    }
+
+    private static String run(Ast.Source ast, TieredCompiler compiler) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Interpreter interpreter = new Interpreter(new Scope(null), new PrintStream(out, true));
+        interpreter.setTieredCompiler(compiler);
+        interpreter.visit(ast);
+        return out.toString();
+    }
+
+    private static Ast.Source analyze(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        return ast;
+    }
+
+}
@@ -0,0 +1,73 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+final class TypeRegistryTests {
+
+    @Test
+    void testSessionType() {
+        TypeRegistry session = new TypeRegistry();
+        Environment.Type type = new Environment.Type("Session", "Session", new Scope(null));
+        session.registerType(type);
+
+        Assertions.assertSame(type, session.getType("Session"));
+        Assertions.assertSame(Environment.Type.INTEGER, session.getType("Integer"));
+        Assertions.assertThrows(RuntimeException.class, () -> new TypeRegistry().getType("Session"));
+        Assertions.assertThrows(RuntimeException.class, () -> Environment.getType("Session"));
+    }
+
+    @Test
+    void testDuplicateRegistration() {
+        TypeRegistry session = new TypeRegistry();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> session.registerType(new Environment.Type("Integer", "int", new Scope(null))));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Environment.registerType(new Environment.Type("String", "String", new Scope(null))));
+    }
+
+    @Test
+    void testFrozenBuiltinScope() {
+        Assertions.assertThrows(IllegalStateException.class, () -> Environment.Type.STRING.getScope()
+                .defineFunction("reverse", "reverse", Arrays.asList(Environment.Type.ANY), Environment.Type.STRING, args -> Environment.NIL));
+    }
+
+    @Test
+    void testFrozenCreatedScope() {
+        //every created object shares the scope of its type, so nothing may be defined in it
+        Assertions.assertThrows(IllegalStateException.class, () -> Environment.create("a").getType().getScope()
+                .defineVariable("leak", true, Environment.NIL));
+        Assertions.assertThrows(RuntimeException.class, () -> Environment.create("b").getType().getGlobal("leak"));
+    }
+
+    @Test
+    void testConcurrentSessions() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Environment.Type>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    TypeRegistry session = new TypeRegistry();
+                    Environment.Type type = new Environment.Type("Point", "Point", new Scope(null));
+                    session.registerType(type);
+                    Ast.Source ast = new Parser(new Lexer("VAR p: Point; FUN main(): Integer DO RETURN 0; END").lex()).parseSource();
+                    new Analyzer(new Scope(null), session).visit(ast);
+                    Assertions.assertSame(type, ast.getGlobals().get(0).getVariable().getType());
+                    return type;
+                }));
+            }
+            for (Future<Environment.Type> result : results) {
+                Assertions.assertEquals("Point", result.get().getName());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}